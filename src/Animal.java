@@ -5,38 +5,112 @@
 // 
 
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.List;
 import java.util.Random;
 
-public abstract class Animal {
-    private boolean alive;
+public abstract class Animal implements Cloneable {
+    // L'accès atomique à alive, qui décide qui note la mort (voir die).
+    private static final VarHandle ALIVE;
+
+    static {
+        try {
+            ALIVE = MethodHandles.lookup().findVarHandle(Animal.class, "alive", boolean.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    // Volatile : un animal peut être mangé depuis un autre fil (voir ConcurrentField).
+    private volatile boolean alive;
     private Field field;
     private Location location;
     public static final Random rand = Randomizer.getRandom();
-    private int age;
+    // L'horloge qui programme la mort de l'animal.
+    private Lifecycle lifecycle;
+    // Le pas de naissance ; l'âge en est déduit.
+    private int birthStep;
+    // Le pas de la mort programmée (vieillesse ou faim).
+    private int deathStep;
+    // L'entrée de l'échéance dans l'horloge (voir Lifecycle), -1 s'il n'y en a pas.
+    int deadlineEntry = -1;
+    // Le numéro de l'animal dans le registre des lignées du terrain, 0 s'il n'est pas enregistré.
+    private long lineageId;
+    // L'animal figé dont celui-ci est la copie dans une branche, jusqu'à sa première action (voir CowField).
+    Animal original;
 
     /**
      * Crée un nouvel animal à une position donnée.
      *
-     * @param field    Le terrain où l'animal est créé.
-     * @param location La position où l'animal est créé.
+     * @param field     Le terrain où l'animal est créé.
+     * @param location  La position où l'animal est créé.
+     * @param lifecycle L'horloge de la simulation.
      */
 
-    public Animal(Field field, Location location) {
+    public Animal(Field field, Location location, Lifecycle lifecycle) {
         alive = true;
         this.field = field;
+        this.lifecycle = lifecycle;
+        LineageRecorder recorder = lifecycle.getLineageRecorder();
+        if (recorder != null) {
+            lineageId = recorder.born(Species.codeOf(this), 0, lifecycle.getStep());
+        }
         setLocation(location);
-        age = 0;
+        setAge(0);
     }
 
     public void setLocation(Location newLocation) {
-        if (location != null) {
-            field.clear(location);
+        if (newLocation.equals(location)) {
+            // Déjà en place : ne pas libérer la cellule, même un instant.
+            return;
+        }
+        if (location != null && !field.replace(location, this, null)) {
+            // Mangé par un autre fil pendant son action : rendre la cellule réservée.
+            field.release(newLocation);
+            return;
         }
         location = newLocation;
         field.place(this, newLocation);
     }
 
+    /**
+     * Mange une proie adjacente et prend sa place. La cellule est
+     * échangée en une fois : l'échange échoue si la proie est morte, a
+     * bougé ou a été prise par un autre prédateur. Sur un terrain
+     * parallèle, la proie peut mourir de surpeuplement dans son propre fil
+     * pendant l'échange : sa mort n'est alors notée qu'une fois (voir die),
+     * avec la cause du premier arrivé.
+     *
+     * @param prey  La proie.
+     * @param where La position de la proie.
+     * @return true si le prédateur a pris la place de la proie.
+     */
+    protected boolean devour(Animal prey, Location where) {
+        if (!prey.isAlive() || !field.replace(where, prey, this)) {
+            return false;
+        }
+        field.replace(location, this, null);
+        location = where;
+        // La proie a pu mourir de surpeuplement dans son fil au même moment :
+        // le prédateur garde sa place, mais seul le gagnant note la mort.
+        if (!prey.die()) {
+            return true;
+        }
+        prey.lifecycle.cancel(prey);
+        LineageRecorder recorder = lifecycle.getLineageRecorder();
+        if (recorder != null) {
+            // Les animaux nés avant l'enregistrement n'ont pas de fiche.
+            if (prey.lineageId != 0) {
+                recorder.died(prey.lineageId, getStep(), LineageRecorder.EATEN);
+            }
+            if (lineageId != 0) {
+                recorder.killed(lineageId);
+            }
+        }
+        return true;
+    }
+
     public Location getLocation() {
         return location;
     }
@@ -53,8 +127,20 @@ public abstract class Animal {
         this.alive = true;
     }
 
+    /**
+     * Fixe l'âge de l'animal et programme sa mort de vieillesse.
+     * Une mort de faim déjà programmée est oubliée.
+     *
+     * @param age L'âge de l'animal au pas courant.
+     */
     public void setAge(int age) {
-        this.age = age;
+        birthStep = lifecycle.getStep() - age;
+        deathStep = Integer.MAX_VALUE;
+        scheduleDeath(Integer.MAX_VALUE);
+        LineageRecorder recorder = recorder();
+        if (recorder != null && age != 0) {
+            recorder.setBirth(lineageId, birthStep);
+        }
     }
 
     public void setField(Field field) {
@@ -62,31 +148,209 @@ public abstract class Animal {
     }
 
     public int getAge() {
-        return age;
+        return lifecycle.getStep() - birthStep;
+    }
+
+    /**
+     * @return Le pas courant de la simulation.
+     */
+    protected int getStep() {
+        return lifecycle.getStep();
+    }
+
+    /**
+     * @return L'horloge de la simulation, par exemple pour y faire naître des petits.
+     */
+    protected Lifecycle getLifecycle() {
+        return lifecycle;
+    }
+
+    /**
+     * Programme la mort de l'animal au pas donné, ou plus tôt s'il
+     * meurt de vieillesse avant.
+     *
+     * @param step Le pas de la mort, par exemple de faim.
+     */
+    protected void scheduleDeath(int step) {
+        int deadline = Math.min(step, birthStep + getMaxAge() + 1);
+        if (deadline != deathStep) {
+            deathStep = deadline;
+            lifecycle.schedule(this, deadline);
+        }
     }
 
+    /**
+     * Appelé par l'horloge lorsqu'une échéance de l'animal arrive.
+     * L'animal meurt si cette échéance est toujours la sienne.
+     *
+     * @param step Le pas courant.
+     */
+    void expire(int step) {
+        if (alive && deathStep == step) {
+            setDead(step == birthStep + getMaxAge() + 1 ? LineageRecorder.OLD_AGE : LineageRecorder.STARVATION);
+        }
+    }
+
+    /**
+     * Copie l'animal pour une branche de la simulation (voir CowField).
+     * La copie a la même position, le même âge et la même échéance, que
+     * l'horloge de la branche reporte sur elle (voir Lifecycle.adopt).
+     *
+     * @param field     Le terrain de la branche.
+     * @param lifecycle L'horloge de la branche.
+     * @return La copie.
+     */
+    Animal copyFor(Field field, Lifecycle lifecycle) {
+        Animal copy;
+        try {
+            copy = (Animal) clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+        copy.field = field;
+        copy.lifecycle = lifecycle;
+        copy.deadlineEntry = -1;
+        copy.original = this;
+        if (lifecycle.getLineageRecorder() == null) {
+            // Les branches ne sont pas enregistrées.
+            copy.lineageId = 0;
+        }
+        lifecycle.adopt(this, copy, deathStep);
+        return copy;
+    }
+
+    /**
+     * Fait mourir l'animal faute de place pour se déplacer.
+     */
     public void setDead() {
-        alive = false;
+        setDead(LineageRecorder.OVERCROWDING);
+    }
+
+    /**
+     * Fait mourir l'animal, ou le retire du terrain.
+     *
+     * @param cause La cause de la mort, pour le registre des lignées (voir LineageRecorder).
+     */
+    void setDead(int cause) {
+        if (location != null) {
+            // Sans effet si l'animal vient d'être mangé depuis un autre fil.
+            field.replace(location, this, null);
+        }
+        if (die()) {
+            // Ne plus retenir l'animal dans l'horloge jusqu'à son échéance.
+            lifecycle.cancel(this);
+            LineageRecorder recorder = recorder();
+            if (recorder != null) {
+                recorder.died(lineageId, getStep(), cause);
+            }
+        }
         if (location != null) {
-            field.clear(location);
             location = null;
             field = null;
         }
     }
 
+    /**
+     * Marque l'animal mort, en une opération atomique : si un prédateur
+     * et l'animal lui-même le font mourir depuis deux fils, un seul des
+     * deux gagne, et lui seul annule l'échéance et note la mort.
+     *
+     * @return true si l'animal était vivant.
+     */
+    private boolean die() {
+        return ALIVE.compareAndSet(this, true, false);
+    }
+
+    /**
+     * Note le parent d'un nouveau-né dans le registre des lignées.
+     *
+     * @param parent L'animal qui lui a donné naissance.
+     */
+    protected void setParent(Animal parent) {
+        LineageRecorder recorder = recorder();
+        if (recorder != null && parent.lineageId != 0) {
+            recorder.setParent(lineageId, parent.lineageId);
+        }
+    }
+
+    /**
+     * Ajoute la fiche d'un animal né avant l'enregistrement des lignées
+     * (voir Simulator.recordLineage), sans parent.
+     *
+     * @param recorder Le registre des lignées du terrain.
+     */
+    void recordLineage(LineageRecorder recorder) {
+        if (lineageId == 0 && alive) {
+            lineageId = recorder.born(Species.codeOf(this), 0, birthStep);
+        }
+    }
+
+    /**
+     * @return Le registre où l'animal a sa fiche, null s'il n'en a pas.
+     */
+    private LineageRecorder recorder() {
+        return lineageId != 0 ? lifecycle.getLineageRecorder() : null;
+    }
+
     public boolean canBreed() {
-        return age >= getBreedingAge();
+        return getAge() >= getBreedingAge();
     }
 
     public abstract void act(List<Animal> newAnimals);
 
-    public void incrementAge() {
-        age++;
-        if (age > getMaxAge()) {
+    /**
+     * Le pas commun des animaux, décrit par les paramètres de l'espèce
+     * (voir Fox, Rabbit et SpeciesKernel) : l'animal donne naissance dans
+     * les positions adjacentes libres, mange la première proie adjacente
+     * vivante s'il chasse, sinon se déplace, et meurt de surpopulation
+     * s'il ne peut pas bouger. Appelée avec des constantes, la méthode est
+     * spécialisée par le compilateur à la volée pour chaque espèce.
+     *
+     * @param newAnimals Une liste à laquelle ajouter les nouveau-nés.
+     * @param prey       La classe des proies, null si l'animal ne chasse pas.
+     * @param foodValue  Le nombre de pas qu'un repas permet de tenir, 0 s'il ne meurt pas de faim.
+     */
+    protected final void step(List<Animal> newAnimals, Class prey, int foodValue) {
+        if (!isAlive()) {
+            return;
+        }
+        Neighbourhood neighbourhood = field.scanNeighbourhood(location, prey);
+        int births = breed();
+        for (int b = 0; b < births; b++) {
+            Location loc = neighbourhood.takeFree();
+            if (loc == null) {
+                break;
+            }
+            Animal young = newborn(loc);
+            young.setParent(this);
+            newAnimals.add(young);
+        }
+        if (prey != null) {
+            for (int i = neighbourhood.nextPrey(); i >= 0; i = neighbourhood.nextPrey()) {
+                if (devour((Animal) neighbourhood.getOccupant(i), neighbourhood.getLocation(i))) {
+                    if (foodValue > 0) {
+                        scheduleDeath(getStep() + foodValue);
+                    }
+                    return;
+                }
+            }
+        }
+        Location newLocation = neighbourhood.takeFree();
+        if (newLocation != null) {
+            setLocation(newLocation);
+        } else {
             setDead();
         }
     }
 
+    /**
+     * Crée un nouveau-né de la même espèce, pour le pas commun (voir step).
+     *
+     * @param location La position du nouveau-né, libre.
+     * @return Le nouveau-né.
+     */
+    protected abstract Animal newborn(Location location);
+
     protected abstract int getMaxAge();
 
     protected abstract int getBreedingAge();
@@ -95,8 +359,9 @@ public abstract class Animal {
 
     public int breed() {
         int births = 0;
-        if (canBreed() && rand.nextDouble() <= getBreedingProbability()) {
-            births = rand.nextInt(getMaxLitterSize()) + 1;
+        Random random = field.random();
+        if (canBreed() && random.nextDouble() <= getBreedingProbability()) {
+            births = random.nextInt(getMaxLitterSize()) + 1;
         }
         return births;
     }
@@ -0,0 +1,94 @@
+import java.util.Arrays;
+
+/**
+ * Un magasin compact d'occupants de cellules. Chaque occupant reçoit un
+ * numéro d'emplacement (slot) ; les emplacements libérés sont réutilisés.
+ * La taille du magasin suit la population et non la surface du terrain.
+ *
+ * @author Filipe Dias Morais
+ * @version 2026.10.19
+ */
+public class AnimalStore
+{
+    // Capacité initiale du magasin.
+    private static final int INITIAL_CAPACITY = 64;
+
+    // Les occupants, indexés par emplacement.
+    private Object[] animals;
+    // Pile des emplacements libérés.
+    private int[] free;
+    // Nombre d'emplacements dans la pile des libres.
+    private int freeCount;
+    // Premier emplacement jamais utilisé.
+    private int next;
+
+    /**
+     * Crée un magasin vide.
+     */
+    public AnimalStore()
+    {
+        animals = new Object[INITIAL_CAPACITY];
+        free = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Range un occupant dans un emplacement libre.
+     * @param animal L'occupant à ranger.
+     * @return Le numéro de l'emplacement attribué.
+     */
+    public int add(Object animal)
+    {
+        int slot;
+        if(freeCount > 0) {
+            slot = free[--freeCount];
+        }
+        else {
+            if(next == animals.length) {
+                animals = Arrays.copyOf(animals, animals.length * 2);
+            }
+            slot = next++;
+        }
+        animals[slot] = animal;
+        return slot;
+    }
+
+    /**
+     * @param slot Un numéro d'emplacement.
+     * @return L'occupant de cet emplacement, null s'il est libre.
+     */
+    public Object get(int slot)
+    {
+        return animals[slot];
+    }
+
+    /**
+     * Libère un emplacement.
+     * @param slot Le numéro de l'emplacement à libérer.
+     */
+    public void remove(int slot)
+    {
+        animals[slot] = null;
+        if(freeCount == free.length) {
+            free = Arrays.copyOf(free, free.length * 2);
+        }
+        free[freeCount++] = slot;
+    }
+
+    /**
+     * @return Le nombre d'occupants rangés.
+     */
+    public int size()
+    {
+        return next - freeCount;
+    }
+
+    /**
+     * Vide le magasin.
+     */
+    public void clear()
+    {
+        Arrays.fill(animals, 0, next, null);
+        next = 0;
+        freeCount = 0;
+    }
+}
@@ -0,0 +1,727 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.BiFunction;
+
+/**
+ * Mesure le débit de bout en bout de la boucle de Simulator.simulate sur des
+ * scénarios fixes, sans affichage : pas et animaux traités par seconde
+ * de processeur, animaux par pas, octets alloués par pas et 99e centile
+ * de la durée d'un pas. Les mesures peuvent être enregistrées dans un
+ * fichier de référence, puis comparées à celui-ci : le programme se
+ * termine en échec si une mesure se dégrade au-delà d'un seuil.
+ *
+ * Les mesures fixées par la base du scénario sont jugées strictement :
+ * le nombre de réinitialisations et d'animaux par pas doivent être ceux
+ * de la référence (sinon le comportement a changé, et la référence est
+ * à refaire), et les octets alloués par pas ne doivent pas dépasser les
+ * siens de plus de ALLOCATION_TOLERANCE. Les animaux d'un
+ * ConcurrentField agissent dans un ordre qui varie d'une exécution à
+ * l'autre : pour ce scénario, seules les allocations sont relevées, par
+ * tranche, et jugées comme les débits.
+ *
+ * Les débits sont rapportés au temps de processeur du fil de la
+ * simulation et des fils du pool commun (voir cpuTime), et non au temps
+ * écoulé, où comptent aussi les autres processus de la machine. Avant
+ * d'être mesuré, chaque scénario est exécuté une fois en entier, si bien
+ * que le compilateur à la volée est dans le même état à chaque mesure
+ * (voir Session). Les pas mesurés sont découpés en tranches : l'écart
+ * d'un débit est la médiane des rapports entre tranches de même rang,
+ * qui refont le même travail, et le seuil est élargi à NOISE_FACTOR fois
+ * la dispersion de ces rapports, sans dépasser MAX_NOISE. Un scénario
+ * dégradé est mesuré une seconde fois, et la dégradation n'est retenue
+ * que si elle se reproduit ; une référence est la médiane, tranche par
+ * tranche, de RECORD_RUNS exécutions. Le 99e centile, en temps écoulé,
+ * n'est relevé que pour les scénarios d'au moins LATENCY_STEPS pas, et
+ * n'est comparé qu'à titre indicatif, sauf si --latency-threshold est
+ * donné.
+ *
+ * Usage : java BenchmarkRunner [--record fichier] [--baseline fichier]
+ *                              [--reference répertoire]
+ *                              [--threshold 0.10] [--latency-threshold 1.0]
+ *                              [scénario...]
+ *
+ * Un débit enregistré dans un fichier de référence a été mesuré à un
+ * autre moment, dans un autre état de la machine (caches, fréquence du
+ * processeur, décisions du compilateur) : d'une exécution à l'autre, il
+ * varie de 10 à 20 %. Avec --reference, les mesures sont plutôt
+ * comparées à celles d'une autre version du code, compilée dans le
+ * répertoire donné (et dont BenchmarkRunner a la méthode open) : les
+ * tranches des deux versions sont exécutées en alternance dans la même
+ * machine virtuelle (voir interleave). Sinon, et sans --baseline, les
+ * mesures sont comparées à DEFAULT_BASELINE s'il existe. Les scénarios sont default, dense, dense-concurrent (les
+ * animaux agissent en parallèle sur un ConcurrentField) et sparse,
+ * peuplés uniformément, puis herds, front, near-full et post-crash,
+ * peuplés selon les dispositions de ScenarioLibrary du même nom.
+ *
+ * @author Filipe Dias Morais
+ * @version 2026.10.19
+ */
+public class BenchmarkRunner
+{
+    // La version du format des fichiers de référence.
+    public static final int FORMAT_VERSION = 3;
+    // Le fichier de référence par défaut.
+    public static final String DEFAULT_BASELINE = "benchmarks/baseline.properties";
+    // La dégradation relative tolérée par défaut.
+    public static final double DEFAULT_THRESHOLD = 0.10;
+    // Le nombre de tranches des pas mesurés ; les débits retenus sont les médianes des tranches.
+    public static final int ROUNDS = 10;
+    // Le nombre d'exécutions de chaque scénario pour une référence, dont les tranches sont les médianes.
+    public static final int RECORD_RUNS = 3;
+    // Le multiple de la dispersion des rapports de tranches en deçà duquel un écart est attribué au bruit.
+    public static final double NOISE_FACTOR = 2;
+    // Le seuil au-delà duquel un écart de débit n'est jamais attribué au bruit.
+    public static final double MAX_NOISE = 0.25;
+    // La hausse tolérée des octets alloués par pas d'un scénario déterminé par sa base.
+    public static final double ALLOCATION_TOLERANCE = 0.01;
+    // Le nombre de pas mesurés en deçà duquel le 99e centile n'est qu'un seuil d'histogramme.
+    public static final int LATENCY_STEPS = 1000;
+
+    // Les scénarios mesurés.
+    private static final Scenario[] SCENARIOS = {
+        new Scenario("default", 50, 50, Field::new,
+                     Simulator.FOX_CREATION_PROBABILITY, Simulator.RABBIT_CREATION_PROBABILITY,
+                     1111, 5000, 20000),
+        new Scenario("dense", 1000, 1000, Field::new, 0.05, 0.30, 2222, 5, 40),
+        new Scenario("dense-concurrent", 1000, 1000, ConcurrentField::new, 0.05, 0.30, 2222, 5, 40),
+        new Scenario("sparse", 10000, 10000, CompactField::new, 0.0001, 0.0005, 3333, 2, 20),
+        new Scenario("herds", 1000, 1000, Field::new, ScenarioLibrary.named("herds"), 4444, 5, 40),
+        new Scenario("front", 1000, 1000, Field::new, ScenarioLibrary.named("front"), 5555, 5, 40),
+        new Scenario("near-full", 1000, 1000, Field::new, ScenarioLibrary.named("near-full"), 6666, 5, 40),
+        new Scenario("post-crash", 4000, 4000, CompactField::new, ScenarioLibrary.named("post-crash"), 7777, 2, 20),
+    };
+
+    /**
+     * Les mesures relevées pour chaque scénario.
+     */
+    private enum Metric
+    {
+        RESETS("resets", 0),
+        ANIMALS_PER_STEP("animalsPerStep", 0),
+        STEPS_PER_CPU_SECOND("stepsPerCpuSecond", 1),
+        ANIMALS_PER_CPU_SECOND("animalsPerCpuSecond", 1),
+        BYTES_PER_STEP("bytesPerStep", -1),
+        P99_MILLIS("p99Millis", -1);
+
+        // Le nom de la mesure dans les fichiers de référence.
+        private final String key;
+        // 1 si une hausse est un progrès, -1 si c'est une dégradation, 0 si
+        // la mesure doit être égale à la référence.
+        private final int direction;
+
+        Metric(String key, int direction)
+        {
+            this.key = key;
+            this.direction = direction;
+        }
+    }
+
+    public static void main(String[] args) throws IOException, ReflectiveOperationException
+    {
+        Path record = null;
+        Path baseline = null;
+        Path reference = null;
+        double threshold = DEFAULT_THRESHOLD;
+        // Le seuil du 99e centile, NaN pour ne le comparer qu'à titre indicatif.
+        double latencyThreshold = Double.NaN;
+        List<String> names = new ArrayList<String>();
+        for(int i = 0; i < args.length; i++) {
+            if(args[i].equals("--record")) {
+                record = Paths.get(args[++i]);
+            }
+            else if(args[i].equals("--baseline")) {
+                baseline = Paths.get(args[++i]);
+            }
+            else if(args[i].equals("--reference")) {
+                reference = Paths.get(args[++i]);
+            }
+            else if(args[i].equals("--threshold")) {
+                threshold = Double.parseDouble(args[++i]);
+            }
+            else if(args[i].equals("--latency-threshold")) {
+                latencyThreshold = Double.parseDouble(args[++i]);
+            }
+            else {
+                names.add(args[i]);
+            }
+        }
+        if(record != null && reference != null) {
+            throw new IllegalArgumentException("--record et --reference s'excluent");
+        }
+        Class<?> other = null;
+        if(reference != null) {
+            // Le chargeur de l'autre version ne voit pas les classes du code courant.
+            URLClassLoader loader = new URLClassLoader(new URL[] { reference.toUri().toURL() },
+                                                       ClassLoader.getPlatformClassLoader());
+            other = loader.loadClass(BenchmarkRunner.class.getName());
+        }
+        else if(baseline == null && Files.exists(Paths.get(DEFAULT_BASELINE))) {
+            baseline = Paths.get(DEFAULT_BASELINE);
+        }
+
+        Map<String, double[]> expected = new LinkedHashMap<String, double[]>();
+        Map<String, double[]> results = new LinkedHashMap<String, double[]>();
+        for(Scenario scenario : SCENARIOS) {
+            if(names.isEmpty() || names.contains(scenario.name)) {
+                results.putAll(record != null ? runMedian(scenario, RECORD_RUNS) : measure(scenario, other, expected));
+            }
+        }
+        if(results.isEmpty()) {
+            throw new IllegalArgumentException("Scénario inconnu : " + names);
+        }
+
+        if(record != null) {
+            write(record, results);
+            System.out.println("Mesures enregistrées dans " + record);
+        }
+        if(other != null || (baseline != null && !baseline.equals(record))) {
+            if(other == null) {
+                expected = read(baseline);
+            }
+            List<String> degraded = compare(expected, results, threshold, latencyThreshold);
+            if(!degraded.isEmpty()) {
+                System.out.println("\nNouvelle mesure de " + String.join(", ", degraded));
+                Map<String, double[]> again = new LinkedHashMap<String, double[]>();
+                for(Scenario scenario : SCENARIOS) {
+                    if(degraded.contains(scenario.name)) {
+                        again.putAll(measure(scenario, other, expected));
+                    }
+                }
+                degraded = compare(expected, again, threshold, latencyThreshold);
+            }
+            if(!degraded.isEmpty()) {
+                System.exit(1);
+            }
+        }
+    }
+
+    /**
+     * Mesure un scénario seul, ou en alternance avec une autre version
+     * du code dont les mesures sont ajoutées à expected.
+     * @param other La classe BenchmarkRunner de l'autre version, null
+     *              s'il n'y en a pas.
+     */
+    private static Map<String, double[]> measure(Scenario scenario, Class<?> other, Map<String, double[]> expected)
+        throws ReflectiveOperationException
+    {
+        if(other == null) {
+            return run(scenario);
+        }
+        List<Map<String, double[]>> results = interleave(scenario, other);
+        expected.putAll(results.get(0));
+        return results.get(1);
+    }
+
+    /**
+     * Mesure un scénario (voir Session).
+     * @return Les mesures, par nom « scénario.mesure » : une valeur par
+     *         tranche, ou une seule pour tout le scénario.
+     */
+    public static Map<String, double[]> run(Scenario scenario)
+    {
+        Session session = new Session(scenario);
+        for(int round = 0; round < ROUNDS; round++) {
+            session.round();
+        }
+        return print(session.results());
+    }
+
+    /**
+     * Mesure un scénario sur le code courant et sur une autre version
+     * de ce code, chargée par reference, en alternant leurs tranches :
+     * les deux versions sont mesurées dans le même état de la machine,
+     * et les rapports entre tranches de même rang ne gardent que
+     * l'écart dû au code. L'ordre des deux tranches d'une paire alterne,
+     * pour qu'une dérive lente de la machine ne favorise aucune version.
+     * @param reference La classe BenchmarkRunner de l'autre version.
+     * @return Les mesures de l'autre version, puis celles du code courant.
+     */
+    @SuppressWarnings("unchecked")
+    public static List<Map<String, double[]>> interleave(Scenario scenario, Class<?> reference)
+        throws ReflectiveOperationException
+    {
+        Object other = reference.getMethod("open", String.class).invoke(null, scenario.name);
+        Method otherRound = other.getClass().getMethod("round");
+        Session session = new Session(scenario);
+        for(int round = 0; round < ROUNDS; round++) {
+            if(round % 2 == 0) {
+                otherRound.invoke(other);
+                session.round();
+            }
+            else {
+                session.round();
+                otherRound.invoke(other);
+            }
+        }
+        List<Map<String, double[]>> results = new ArrayList<Map<String, double[]>>();
+        results.add((Map<String, double[]>) other.getClass().getMethod("results").invoke(other));
+        results.add(print(session.results()));
+        return results;
+    }
+
+    /**
+     * Prépare la mesure d'un scénario. Une autre version du code est
+     * mesurée par cette méthode (voir interleave).
+     * @throws IllegalArgumentException Si le scénario est inconnu.
+     */
+    public static Session open(String name)
+    {
+        return new Session(scenario(name));
+    }
+
+    /**
+     * @return Le temps de processeur consommé par le fil appelant et par
+     * les fils du pool commun, où agissent les animaux d'un
+     * ConcurrentField, en nanosecondes. Un fil du pool qui se termine
+     * emporte son temps ; le pool les garde une minute sans travail.
+     */
+    private static long cpuTime(com.sun.management.ThreadMXBean threads)
+    {
+        long total = threads.getCurrentThreadCpuTime();
+        for(Thread thread : Thread.getAllStackTraces().keySet()) {
+            if(thread instanceof ForkJoinWorkerThread
+               && ((ForkJoinWorkerThread) thread).getPool() == ForkJoinPool.commonPool()) {
+                total += Math.max(threads.getThreadCpuTime(thread.getId()), 0);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Mesure un scénario plusieurs fois et garde, pour chaque tranche,
+     * la médiane des mesures.
+     * @return Les mesures, par nom « scénario.mesure ».
+     */
+    public static Map<String, double[]> runMedian(Scenario scenario, int runs)
+    {
+        List<Map<String, double[]>> all = new ArrayList<Map<String, double[]>>();
+        for(int i = 0; i < runs; i++) {
+            all.add(run(scenario));
+        }
+        Map<String, double[]> results = new LinkedHashMap<String, double[]>();
+        for(String key : all.get(0).keySet()) {
+            double[] medians = new double[all.get(0).get(key).length];
+            double[] values = new double[runs];
+            for(int round = 0; round < medians.length; round++) {
+                for(int i = 0; i < runs; i++) {
+                    values[i] = all.get(i).get(key)[round];
+                }
+                medians[round] = median(values);
+            }
+            results.put(key, medians);
+        }
+        return results;
+    }
+
+    /**
+     * Exécute un nombre de pas donné, en réinitialisant la simulation
+     * chaque fois qu'elle n'est plus viable.
+     */
+    private static void simulate(Simulator simulator, int steps)
+    {
+        for(int done = 0; done < steps; done++) {
+            if(!simulator.isViable()) {
+                simulator.reset();
+            }
+            simulator.simulateOneStep();
+        }
+    }
+
+    /**
+     * Compare des mesures à une référence et affiche les écarts.
+     * Une mesure de direction nulle (réinitialisations, animaux par pas)
+     * doit être égale à la référence. Les octets alloués par pas, en une
+     * seule valeur, ne doivent pas dépasser la référence de plus de
+     * ALLOCATION_TOLERANCE. L'écart d'une mesure relevée par tranches
+     * est la médiane des rapports entre tranches de même rang ; elle se
+     * dégrade si cet écart dépasse le plus grand du seuil et de
+     * NOISE_FACTOR fois la dispersion des rapports, bornée à MAX_NOISE.
+     * Les perturbations de la machine durent souvent plusieurs tranches :
+     * les tranches ne sont pas indépendantes, et la dispersion n'est pas
+     * divisée par la racine de leur nombre.
+     * @param threshold La dégradation relative tolérée des débits.
+     * @param latencyThreshold La dégradation relative tolérée du 99e
+     *                         centile, NaN pour ne pas la juger.
+     * @return Les scénarios dont une mesure s'est dégradée au-delà de son
+     *         seuil, ou a changé, dans l'ordre des mesures.
+     */
+    public static List<String> compare(Map<String, double[]> baseline, Map<String, double[]> results,
+                                       double threshold, double latencyThreshold)
+    {
+        List<String> degraded = new ArrayList<String>();
+        System.out.printf("%n%-34s %14s %14s %9s %9s%n", "mesure", "référence", "actuelle", "écart", "seuil");
+        for(Map.Entry<String, double[]> entry : results.entrySet()) {
+            Metric metric = metricOf(entry.getKey());
+            double[] current = entry.getValue();
+            double[] reference = baseline.get(entry.getKey());
+            if(reference == null) {
+                System.out.printf("%-34s %14s %14.3f%n", entry.getKey(), "-", median(current));
+                continue;
+            }
+            double change = (median(current) - median(reference)) / Math.max(Math.abs(median(reference)), 1e-9);
+            double tolerance;
+            if(metric.direction == 0) {
+                tolerance = 0;
+            }
+            else if(metric == Metric.P99_MILLIS) {
+                tolerance = latencyThreshold;
+            }
+            else if(reference.length == 1 && current.length == 1) {
+                tolerance = ALLOCATION_TOLERANCE;
+            }
+            else if(reference.length == current.length) {
+                double[] ratios = new double[current.length];
+                for(int round = 0; round < ratios.length; round++) {
+                    ratios[round] = current[round] / Math.max(Math.abs(reference[round]), 1e-9);
+                }
+                change = median(ratios) - 1;
+                tolerance = Math.max(threshold, Math.min(NOISE_FACTOR * spread(ratios), MAX_NOISE));
+            }
+            else {
+                tolerance = threshold;
+            }
+            String verdict = "";
+            if(Double.isNaN(tolerance)) {
+                verdict = "  (indicatif)";
+            }
+            else if(metric.direction == 0 ? change != 0 : -metric.direction * change > tolerance) {
+                verdict = metric.direction == 0 ? "  COMPORTEMENT MODIFIÉ" : "  DÉGRADATION";
+                String scenario = entry.getKey().substring(0, entry.getKey().lastIndexOf('.'));
+                if(!degraded.contains(scenario)) {
+                    degraded.add(scenario);
+                }
+            }
+            System.out.printf("%-34s %14.3f %14.3f %+8.1f%% %9s%s%n",
+                              entry.getKey(), median(reference), median(current), change * 100,
+                              Double.isNaN(tolerance) ? "-" : String.format("%.0f%%", tolerance * 100),
+                              verdict);
+        }
+        System.out.printf("%n%s (seuil %.0f %%, ou %.0f fois la dispersion due au bruit jusqu'à %.0f %% ;"
+                          + " allocations %.0f %% ; comportement identique)%n",
+                          degraded.isEmpty() ? "Aucune dégradation" : "Dégradation détectée",
+                          threshold * 100, NOISE_FACTOR, MAX_NOISE * 100, ALLOCATION_TOLERANCE * 100);
+        return degraded;
+    }
+
+    /**
+     * Lit un fichier de référence.
+     * @throws IOException Si le fichier est illisible ou d'une autre version.
+     */
+    public static Map<String, double[]> read(Path file) throws IOException
+    {
+        Properties properties = new Properties();
+        try(BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(in);
+        }
+        String format = properties.getProperty("format");
+        if(!String.valueOf(FORMAT_VERSION).equals(format)) {
+            throw new IOException(file + " : version de format " + format
+                                  + ", version " + FORMAT_VERSION + " attendue");
+        }
+        Map<String, double[]> baseline = new LinkedHashMap<String, double[]>();
+        for(String key : properties.stringPropertyNames()) {
+            if(key.indexOf('.') > 0 && metricOf(key) != null) {
+                String[] values = properties.getProperty(key).split(",");
+                double[] rounds = new double[values.length];
+                for(int i = 0; i < values.length; i++) {
+                    rounds[i] = Double.parseDouble(values[i].trim());
+                }
+                baseline.put(key, rounds);
+            }
+        }
+        return baseline;
+    }
+
+    /**
+     * Écrit des mesures dans un fichier de référence, avec la version
+     * du format et une description de la machine.
+     */
+    public static void write(Path file, Map<String, double[]> results) throws IOException
+    {
+        if(file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try(PrintWriter out = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            out.println("# Mesures de référence de BenchmarkRunner");
+            out.println("# java " + System.getProperty("java.version") + ", " + System.getProperty("os.arch")
+                        + ", " + Runtime.getRuntime().availableProcessors() + " processeur(s)");
+            out.println("format=" + FORMAT_VERSION);
+            for(Map.Entry<String, double[]> entry : results.entrySet()) {
+                StringBuilder values = new StringBuilder();
+                for(double value : entry.getValue()) {
+                    values.append(values.length() == 0 ? "" : ",").append(value);
+                }
+                out.println(entry.getKey() + "=" + values);
+            }
+        }
+    }
+
+    /**
+     * @return La mesure nommée, null si elle est inconnue.
+     */
+    private static Metric metricOf(String key)
+    {
+        String name = key.substring(key.lastIndexOf('.') + 1);
+        for(Metric metric : Metric.values()) {
+            if(metric.key.equals(name)) {
+                return metric;
+            }
+        }
+        return null;
+    }
+
+    private static double median(double[] values)
+    {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 0 ? (sorted[middle - 1] + sorted[middle]) / 2 : sorted[middle];
+    }
+
+    /**
+     * Estime la dispersion relative de valeurs : l'écart absolu médian
+     * à la médiane, ramené à un écart type (facteur 1,4826) et divisé
+     * par la médiane. Une valeur isolée perturbée ne l'élargit pas.
+     */
+    private static double spread(double[] values)
+    {
+        double center = median(values);
+        double[] deviations = new double[values.length];
+        for(int i = 0; i < values.length; i++) {
+            deviations[i] = Math.abs(values[i] - center);
+        }
+        return 1.4826 * median(deviations) / Math.max(Math.abs(center), 1e-9);
+    }
+
+    private static void put(Map<String, double[]> results, Scenario scenario, Metric metric, double value)
+    {
+        put(results, scenario, metric, new double[] { value });
+    }
+
+    private static void put(Map<String, double[]> results, Scenario scenario, Metric metric, double[] rounds)
+    {
+        results.put(scenario.name + "." + metric.key, rounds);
+    }
+
+    private static Map<String, double[]> print(Map<String, double[]> results)
+    {
+        for(Map.Entry<String, double[]> entry : results.entrySet()) {
+            System.out.printf("%-34s %14.3f%n", entry.getKey(), median(entry.getValue()));
+        }
+        return results;
+    }
+
+    /**
+     * @throws IllegalArgumentException Si le scénario est inconnu.
+     */
+    private static Scenario scenario(String name)
+    {
+        for(Scenario scenario : SCENARIOS) {
+            if(scenario.name.equals(name)) {
+                return scenario;
+            }
+        }
+        throw new IllegalArgumentException("Scénario inconnu : " + name);
+    }
+
+    /**
+     * Un scénario fixe : les dimensions du terrain, son peuplement
+     * (uniforme ou selon une disposition), la base du générateur
+     * aléatoire et le nombre de pas.
+     */
+    public static class Scenario
+    {
+        private final String name;
+        private final int depth, width;
+        // Crée le terrain, à partir de sa profondeur et de sa largeur.
+        private final BiFunction<Integer, Integer, Field> fieldFactory;
+        private final double foxCreationProbability, rabbitCreationProbability;
+        // La disposition des animaux, null pour le peuplement uniforme.
+        private final Layout layout;
+        private final long seed;
+        private final int warmupSteps, steps;
+
+        public Scenario(String name, int depth, int width, BiFunction<Integer, Integer, Field> fieldFactory,
+                        double foxCreationProbability, double rabbitCreationProbability,
+                        long seed, int warmupSteps, int steps)
+        {
+            this.name = name;
+            this.depth = depth;
+            this.width = width;
+            this.fieldFactory = fieldFactory;
+            this.foxCreationProbability = foxCreationProbability;
+            this.rabbitCreationProbability = rabbitCreationProbability;
+            this.layout = null;
+            this.seed = seed;
+            this.warmupSteps = warmupSteps;
+            this.steps = steps;
+        }
+
+        public Scenario(String name, int depth, int width, BiFunction<Integer, Integer, Field> fieldFactory,
+                        Layout layout, long seed, int warmupSteps, int steps)
+        {
+            this.name = name;
+            this.depth = depth;
+            this.width = width;
+            this.fieldFactory = fieldFactory;
+            this.foxCreationProbability = Simulator.FOX_CREATION_PROBABILITY;
+            this.rabbitCreationProbability = Simulator.RABBIT_CREATION_PROBABILITY;
+            this.layout = layout;
+            this.seed = seed;
+            this.warmupSteps = warmupSteps;
+            this.steps = steps;
+        }
+
+        /**
+         * @return Une simulation sans affichage, peuplée pour ce scénario.
+         */
+        public Simulator create()
+        {
+            Field field = fieldFactory.apply(depth, width);
+            if(layout != null) {
+                return new Simulator(field, false, layout);
+            }
+            return new Simulator(field, false, foxCreationProbability, rabbitCreationProbability);
+        }
+    }
+
+    /**
+     * Une simulation de scénario mesurée tranche par tranche. Le
+     * scénario est d'abord exécuté une fois en entier, sans mesure, puis
+     * une nouvelle simulation de même base fait quelques pas de mise en
+     * température ; chaque tranche fait ensuite ROUNDS-ième des pas
+     * mesurés. Si la simulation n'est plus viable, elle est
+     * réinitialisée et poursuivie jusqu'au nombre de pas voulu ; la
+     * suite des pas reste déterminée par la base du scénario.
+     */
+    public static final class Session
+    {
+        private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        private final Scenario scenario;
+        private final Simulator simulator;
+        private final StepRecorder recorder;
+        // false si les animaux agissent dans un ordre qui varie d'une exécution à l'autre.
+        private final boolean seeded;
+        private final double[] stepRates = new double[ROUNDS];
+        private final double[] animalRates = new double[ROUNDS];
+        private final double[] allocationRates = new double[ROUNDS];
+        private long allocated;
+        private int round;
+
+        private Session(Scenario scenario)
+        {
+            this.scenario = scenario;
+            Randomizer.reset(scenario.seed);
+            simulate(scenario.create(), scenario.warmupSteps + scenario.steps);
+            System.gc();
+            Randomizer.reset(scenario.seed);
+            simulator = scenario.create();
+            simulate(simulator, scenario.warmupSteps);
+            seeded = !(simulator.getField() instanceof ConcurrentField);
+            recorder = new StepRecorder(simulator);
+            simulator.addSimulationListener(recorder);
+        }
+
+        /**
+         * Exécute et mesure la tranche suivante.
+         */
+        public void round()
+        {
+            int steps = recorder.steps;
+            long animals = recorder.animals;
+            long cpu = cpuTime(threads);
+            long bytes = threads.getCurrentThreadAllocatedBytes();
+            simulate(simulator, scenario.steps / ROUNDS);
+            bytes = threads.getCurrentThreadAllocatedBytes() - bytes;
+            cpu = Math.max(cpuTime(threads) - cpu, 1);
+            steps = recorder.steps - steps;
+            stepRates[round] = steps * 1e9 / cpu;
+            animalRates[round] = (recorder.animals - animals) * 1e9 / cpu;
+            allocationRates[round] = bytes / (double) Math.max(steps, 1);
+            allocated += bytes;
+            round++;
+        }
+
+        /**
+         * @return Les mesures des tranches exécutées, par nom
+         *         « scénario.mesure ».
+         */
+        public Map<String, double[]> results()
+        {
+            Map<String, double[]> results = new LinkedHashMap<String, double[]>();
+            if(seeded) {
+                put(results, scenario, Metric.RESETS, recorder.resets);
+                put(results, scenario, Metric.ANIMALS_PER_STEP,
+                    recorder.animals / (double) Math.max(recorder.steps, 1));
+            }
+            put(results, scenario, Metric.STEPS_PER_CPU_SECOND, stepRates);
+            put(results, scenario, Metric.ANIMALS_PER_CPU_SECOND, animalRates);
+            if(seeded) {
+                put(results, scenario, Metric.BYTES_PER_STEP, allocated / (double) Math.max(recorder.steps, 1));
+            }
+            else {
+                put(results, scenario, Metric.BYTES_PER_STEP, allocationRates);
+            }
+            if(recorder.steps >= LATENCY_STEPS) {
+                put(results, scenario, Metric.P99_MILLIS, recorder.latencies.getPercentile(99) / 1e6);
+            }
+            return results;
+        }
+    }
+
+    /**
+     * Relève la durée de chaque pas et le nombre d'animaux traités.
+     */
+    private static class StepRecorder implements SimulationListener
+    {
+        private final Simulator simulator;
+        private final LatencyHistogram latencies;
+        private long last;
+        private int lastCount;
+        private int steps;
+        private int resets;
+        private long animals;
+
+        private StepRecorder(Simulator simulator)
+        {
+            this.simulator = simulator;
+            latencies = new LatencyHistogram();
+            last = System.nanoTime();
+            lastCount = simulator.getAnimalCount();
+        }
+
+        public void stepCompleted(int step, Field field)
+        {
+            long now = System.nanoTime();
+            if(step == 0) {
+                // Une réinitialisation n'est pas un pas.
+                resets++;
+            }
+            else {
+                latencies.record(now - last);
+                animals += lastCount;
+                steps++;
+            }
+            last = now;
+            lastCount = simulator.getAnimalCount();
+        }
+    }
+}
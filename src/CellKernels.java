@@ -0,0 +1,177 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Les boucles de parcours d'un tableau de codes d'espèce (un octet par
+ * cellule, voir CompactField) : compter les espèces, effacer, et
+ * construire un masque des cellules libres.
+ *
+ * La version par défaut traite huit cellules par instruction, en
+ * lisant des mots de 64 bits (technique « SWAR », SIMD dans un
+ * registre). La version scalaire traite une cellule à la fois ; elle
+ * sert de référence et peut être choisie avec -Dfield.kernels=scalar.
+ *
+ * @author Filipe Dias Morais
+ * @version 2026.10.19
+ */
+public abstract class CellKernels
+{
+    // Un octet 0x01 dans chaque octet du mot.
+    private static final long ONES = 0x0101010101010101L;
+    // Les 7 bits faibles de chaque octet du mot.
+    private static final long LOW7 = 0x7F7F7F7F7F7F7F7FL;
+
+    private static final CellKernels SCALAR = new Scalar();
+    private static final CellKernels SWAR = new Swar();
+    private static final CellKernels DEFAULT =
+        "scalar".equals(System.getProperty("field.kernels")) ? SCALAR : SWAR;
+
+    /**
+     * @return Les boucles choisies pour cette exécution.
+     */
+    public static CellKernels get()
+    {
+        return DEFAULT;
+    }
+
+    /**
+     * @return Les boucles scalaires, une cellule à la fois.
+     */
+    public static CellKernels scalar()
+    {
+        return SCALAR;
+    }
+
+    /**
+     * @return Les boucles traitant huit cellules par mot de 64 bits.
+     */
+    public static CellKernels swar()
+    {
+        return SWAR;
+    }
+
+    /**
+     * Ajoute le nombre de cellules de chaque code d'espèce non vide.
+     * @param codes Les codes, dans l'ordre des octets petit-boutiste.
+     * @param from Le premier index, inclus.
+     * @param to Le dernier index, exclu.
+     * @param species Le nombre de codes à compter (Species.count()).
+     * @param counts Les comptes à augmenter, indexés par code.
+     */
+    public abstract void count(ByteBuffer codes, int from, int to, int species, int[] counts);
+
+    /**
+     * Remet à zéro une plage d'octets.
+     * @param bytes Le tampon à effacer.
+     * @param from Le premier index, inclus.
+     * @param to Le dernier index, exclu.
+     */
+    public abstract void clear(ByteBuffer bytes, int from, int to);
+
+    /**
+     * Construit le masque des cellules libres d'une plage : le bit i
+     * du mot i / 64 vaut 1 si la cellule from + i est vide.
+     * @param codes Les codes, dans l'ordre des octets petit-boutiste.
+     * @param from Le premier index, inclus.
+     * @param to Le dernier index, exclu.
+     * @param mask Le masque, d'au moins (to - from + 63) / 64 mots.
+     */
+    public abstract void freeMask(ByteBuffer codes, int from, int to, long[] mask);
+
+    /**
+     * Les boucles scalaires.
+     */
+    private static class Scalar extends CellKernels
+    {
+        public void count(ByteBuffer codes, int from, int to, int species, int[] counts)
+        {
+            for(int i = from; i < to; i++) {
+                int code = codes.get(i) & 0xFF;
+                if(code != Species.EMPTY) {
+                    counts[code]++;
+                }
+            }
+        }
+
+        public void clear(ByteBuffer bytes, int from, int to)
+        {
+            for(int i = from; i < to; i++) {
+                bytes.put(i, (byte) 0);
+            }
+        }
+
+        public void freeMask(ByteBuffer codes, int from, int to, long[] mask)
+        {
+            Arrays.fill(mask, 0, (to - from + 63) >>> 6, 0L);
+            for(int i = from; i < to; i++) {
+                if(codes.get(i) == 0) {
+                    mask[(i - from) >>> 6] |= 1L << (i - from);
+                }
+            }
+        }
+    }
+
+    /**
+     * Les boucles sur des mots de 64 bits.
+     */
+    private static class Swar extends CellKernels
+    {
+        public void count(ByteBuffer codes, int from, int to, int species, int[] counts)
+        {
+            int i = from;
+            int end = to - Long.BYTES;
+            for(; i <= end; i += Long.BYTES) {
+                long word = codes.getLong(i);
+                if(word == 0) {
+                    // Huit cellules vides : cas le plus fréquent.
+                    continue;
+                }
+                for(int code = 1; code < species; code++) {
+                    counts[code] += Long.bitCount(zeroBytes(word ^ (code * ONES)));
+                }
+            }
+            SCALAR.count(codes, i, to, species, counts);
+        }
+
+        public void clear(ByteBuffer bytes, int from, int to)
+        {
+            int i = from;
+            int end = to - Long.BYTES;
+            for(; i <= end; i += Long.BYTES) {
+                bytes.putLong(i, 0L);
+            }
+            SCALAR.clear(bytes, i, to);
+        }
+
+        public void freeMask(ByteBuffer codes, int from, int to, long[] mask)
+        {
+            Arrays.fill(mask, 0, (to - from + 63) >>> 6, 0L);
+            int i = from;
+            int end = to - Long.BYTES;
+            for(; i <= end; i += Long.BYTES) {
+                // Un bit par octet nul, ramené sur les 8 bits forts puis décalé.
+                long bits = (zeroBytes(codes.getLong(i)) >>> 7) * 0x0102040810204080L >>> 56;
+                int offset = i - from;
+                mask[offset >>> 6] |= bits << offset;
+                if((offset & 63) > 56) {
+                    mask[(offset >>> 6) + 1] |= bits >>> (64 - (offset & 63));
+                }
+            }
+            for(; i < to; i++) {
+                if(codes.get(i) == 0) {
+                    mask[(i - from) >>> 6] |= 1L << (i - from);
+                }
+            }
+        }
+
+        /**
+         * Renvoie un mot dont le bit fort de chaque octet vaut 1 si
+         * l'octet correspondant de word est nul, sans faux positif.
+         */
+        private static long zeroBytes(long word)
+        {
+            long low = (word & LOW7) + LOW7;
+            return ~(low | word | LOW7);
+        }
+    }
+}
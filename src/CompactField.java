@@ -0,0 +1,286 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Un terrain dont les cellules sont stockées hors du tas Java.
+ * Chaque cellule occupe un octet de code d'espèce (voir Species) et un
+ * entier désignant l'emplacement de l'animal dans un AnimalStore.
+ * La grille ne contient aucune référence : le ramasse-miettes ne la
+ * parcourt pas, quelle que soit la taille du terrain.
+ * Le stockage peut être projeté en mémoire depuis un fichier, ce qui
+ * permet des terrains plus grands que le tas. Il est découpé en segments
+ * d'au plus SEGMENT_BYTES octets, qui regroupent chacun un même nombre
+ * de lignes, une puissance de deux : un parcours de ligne ne change
+ * jamais de segment, et la taille du terrain n'est pas bornée par celle
+ * d'un tampon.
+ *
+ * @author Filipe Dias Morais
+ * @version 2026.10.19
+ */
+public class CompactField extends Field
+{
+    // Octets occupés par une cellule : un code et un numéro d'emplacement.
+    private static final int BYTES_PER_CELL = 1 + Integer.BYTES;
+    // La taille maximale d'un segment du stockage (1 Gio).
+    private static final long SEGMENT_BYTES = 1L << 30;
+
+    // Un code d'espèce par cellule, 0 pour une cellule vide, par segment.
+    private final ByteBuffer[] codes;
+    // Numéro d'emplacement + 1 par cellule, 0 pour une cellule vide, par segment.
+    private final IntBuffer[] slots;
+    // Les mêmes numéros d'emplacement, vus comme des octets.
+    private final ByteBuffer[] slotBytes;
+    // Le segment d'une ligne est row >>> segmentShift.
+    private final int segmentShift;
+    // La ligne dans son segment est row & segmentMask.
+    private final int segmentMask;
+    // Les boucles de parcours des codes.
+    private final CellKernels kernels;
+    // Les animaux présents sur le terrain.
+    private final AnimalStore store;
+
+    /**
+     * Représente un terrain stocké dans des zones mémoire directes.
+     * @param depth Profondeur du terrain
+     * @param width Largeur du terrain
+     */
+    public CompactField(int depth, int width)
+    {
+        this(depth, width, allocate(depth, width));
+    }
+
+    /**
+     * Représente un terrain stocké dans un fichier projeté en mémoire.
+     * Le fichier est créé ou agrandi si nécessaire ; son contenu initial
+     * est ignoré et le terrain est vidé.
+     * @param depth Profondeur du terrain
+     * @param width Largeur du terrain
+     * @param file Le fichier de stockage.
+     * @throws IOException Si le fichier ne peut pas être projeté.
+     */
+    public CompactField(int depth, int width, Path file) throws IOException
+    {
+        this(depth, width, map(file, depth, width));
+        // Effacer tout le fichier : son contenu n'est pas décrit par les tuiles actives.
+        for(int segment = 0; segment < codes.length; segment++) {
+            kernels.clear(codes[segment], 0, codes[segment].capacity());
+            kernels.clear(slotBytes[segment], 0, slotBytes[segment].capacity());
+        }
+    }
+
+    private CompactField(int depth, int width, ByteBuffer[] storage)
+    {
+        super(depth, width, false);
+        int rows = segmentRows(width);
+        segmentShift = Integer.numberOfTrailingZeros(rows);
+        segmentMask = rows - 1;
+        codes = new ByteBuffer[storage.length];
+        slotBytes = new ByteBuffer[storage.length];
+        slots = new IntBuffer[storage.length];
+        for(int segment = 0; segment < storage.length; segment++) {
+            int cells = storage[segment].capacity() / BYTES_PER_CELL;
+            codes[segment] = storage[segment].slice(0, cells).order(ByteOrder.LITTLE_ENDIAN);
+            slotBytes[segment] = storage[segment].slice(cells, cells * Integer.BYTES).order(ByteOrder.nativeOrder());
+            slots[segment] = slotBytes[segment].asIntBuffer();
+        }
+        store = new AnimalStore();
+        kernels = CellKernels.get();
+    }
+
+    protected void clearCells()
+    {
+        int width = getWidth();
+        forEachActiveSpan((row, fromCol, toCol) -> {
+            int segment = row >>> segmentShift;
+            int from = indexOf(row, fromCol);
+            int to = from + toCol - fromCol;
+            kernels.clear(codes[segment], from, to);
+            kernels.clear(slotBytes[segment], from * Integer.BYTES, to * Integer.BYTES);
+        });
+        store.clear();
+    }
+
+    /**
+     * Lit le code d'espèce de la cellule, sans consulter le magasin
+     * d'animaux.
+     */
+    public int getCodeAt(int row, int col)
+    {
+        return codes[row >>> segmentShift].get(indexOf(row, col)) & 0xFF;
+    }
+
+    /**
+     * Retourne l'espèce de l'animal à la position donnée sans
+     * consulter le magasin d'animaux.
+     * @param row Ligne de la position
+     * @param col Colonne de la position
+     * @return La classe de l'animal à cette position, null si aucun
+     */
+    public Class getSpeciesAt(int row, int col)
+    {
+        return Species.classOf(getCodeAt(row, col));
+    }
+
+    /**
+     * Place un marqueur d'espèce sur une cellule, sans animal associé.
+     * Sert à reconstruire un terrain enregistré (voir RunReplayer) :
+     * getSpeciesAt renvoie alors l'espèce, mais getObjectAt renvoie null.
+     * Les observateurs du terrain ne sont pas prévenus.
+     * @param row Ligne de la position
+     * @param col Colonne de la position
+     * @param code Le code d'espèce, Species.EMPTY pour vider la cellule
+     */
+    public void setCode(int row, int col, int code)
+    {
+        int previous = getCodeAt(row, col);
+        writeCell(row, col, null);
+        codes[row >>> segmentShift].put(indexOf(row, col), (byte) code);
+        if(previous == Species.EMPTY && code != Species.EMPTY) {
+            occupancyChanged(row, col, true);
+        }
+        else if(previous != Species.EMPTY && code == Species.EMPTY) {
+            occupancyChanged(row, col, false);
+        }
+    }
+
+    /**
+     * Copie les codes d'espèce de toutes les cellules, ligne par ligne.
+     * @param dest Le tableau de destination, d'au moins getDepth() * getWidth() octets.
+     */
+    public void copyCodes(byte[] dest)
+    {
+        int offset = 0;
+        for(ByteBuffer segment : codes) {
+            segment.get(0, dest, offset, segment.capacity());
+            offset += segment.capacity();
+        }
+    }
+
+    /**
+     * Compte les animaux de chaque espèce, en ne lisant que les codes
+     * des tuiles actives, par segments réunis (voir forEachActiveSpan).
+     * @param counts Les comptes à augmenter, indexés par code d'espèce
+     *               (au moins Species.MAX_CODES cases).
+     */
+    public void countCodes(int[] counts)
+    {
+        int species = Species.count();
+        forEachActiveSpan((row, fromCol, toCol) -> {
+            int from = indexOf(row, fromCol);
+            kernels.count(codes[row >>> segmentShift], from, from + toCol - fromCol, species, counts);
+        });
+    }
+
+    /**
+     * Construit le masque des cellules libres d'une ligne en lisant ses
+     * codes huit à huit, sans consulter le magasin d'animaux.
+     */
+    public void freeMask(int row, long[] mask)
+    {
+        int from = indexOf(row, 0);
+        kernels.freeMask(codes[row >>> segmentShift], from, from + getWidth(), mask);
+    }
+
+    /**
+     * @return Le nombre d'animaux présents sur le terrain.
+     */
+    public int getAnimalCount()
+    {
+        return store.size();
+    }
+
+    protected Object readCell(int row, int col)
+    {
+        int slot = slots[row >>> segmentShift].get(indexOf(row, col));
+        return slot == 0 ? null : store.get(slot - 1);
+    }
+
+    protected void writeCell(int row, int col, Object animal)
+    {
+        int segment = row >>> segmentShift;
+        int index = indexOf(row, col);
+        int slot = slots[segment].get(index);
+        if(slot != 0) {
+            store.remove(slot - 1);
+        }
+        if(animal == null) {
+            codes[segment].put(index, (byte) Species.EMPTY);
+            slots[segment].put(index, 0);
+        }
+        else {
+            codes[segment].put(index, (byte) Species.codeOf(animal));
+            slots[segment].put(index, store.add(animal) + 1);
+        }
+    }
+
+    /**
+     * @return L'index d'une cellule dans les tampons de son segment.
+     */
+    private int indexOf(int row, int col)
+    {
+        return (row & segmentMask) * getWidth() + col;
+    }
+
+    /**
+     * @return Le nombre de lignes d'un segment : la plus grande puissance
+     *         de deux dont les cellules tiennent dans SEGMENT_BYTES.
+     */
+    private static int segmentRows(int width)
+    {
+        long rows = SEGMENT_BYTES / ((long) Math.max(width, 1) * BYTES_PER_CELL);
+        if(rows == 0) {
+            throw new IllegalArgumentException("Ligne trop longue pour un stockage compact : " + width);
+        }
+        return (int) Long.highestOneBit(rows);
+    }
+
+    /**
+     * @return La taille de chaque segment du stockage, en octets.
+     */
+    private static int[] segmentSizes(int depth, int width)
+    {
+        int rows = segmentRows(width);
+        int[] sizes = new int[(int) (((long) depth + rows - 1) / rows)];
+        for(int segment = 0; segment < sizes.length; segment++) {
+            sizes[segment] = Math.min(rows, depth - segment * rows) * width * BYTES_PER_CELL;
+        }
+        return sizes;
+    }
+
+    /**
+     * Alloue les segments du stockage hors du tas.
+     */
+    private static ByteBuffer[] allocate(int depth, int width)
+    {
+        int[] sizes = segmentSizes(depth, width);
+        ByteBuffer[] storage = new ByteBuffer[sizes.length];
+        for(int segment = 0; segment < sizes.length; segment++) {
+            storage[segment] = ByteBuffer.allocateDirect(sizes[segment]);
+        }
+        return storage;
+    }
+
+    /**
+     * Projette les segments du stockage, l'un après l'autre, depuis un
+     * fichier en lecture et écriture.
+     */
+    private static ByteBuffer[] map(Path file, int depth, int width) throws IOException
+    {
+        int[] sizes = segmentSizes(depth, width);
+        ByteBuffer[] storage = new ByteBuffer[sizes.length];
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                                                   StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long position = 0;
+            for(int segment = 0; segment < sizes.length; segment++) {
+                storage[segment] = channel.map(FileChannel.MapMode.READ_WRITE, position, sizes[segment]);
+                position += sizes[segment];
+            }
+        }
+        return storage;
+    }
+}
@@ -0,0 +1,77 @@
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+
+/**
+ * Une espèce compilée depuis sa description (voir SpeciesCompiler).
+ * Sa classe est une classe cachée, sans nom utilisable dans le code :
+ * les animaux se créent par la méthode create.
+ *
+ * @author Filipe Dias Morais
+ * @version 2026.10.19
+ */
+public final class CompiledSpecies
+{
+    // Le type du constructeur : (boolean randomAge, Field field, Location location, Lifecycle lifecycle).
+    private static final MethodType FACTORY_TYPE =
+        MethodType.methodType(Animal.class, boolean.class, Field.class, Location.class, Lifecycle.class);
+
+    private final SpeciesSpec spec;
+    private final Class speciesClass;
+    private final MethodHandle constructor;
+
+    /**
+     * @param spec La description de l'espèce.
+     * @param speciesClass La classe compilée.
+     * @param constructor Son constructeur (boolean, Field, Location, Lifecycle).
+     */
+    CompiledSpecies(SpeciesSpec spec, Class speciesClass, MethodHandle constructor)
+    {
+        this.spec = spec;
+        this.speciesClass = speciesClass;
+        this.constructor = constructor.asType(FACTORY_TYPE);
+    }
+
+    /**
+     * Crée un animal de cette espèce et le place sur le terrain.
+     * @param randomAge Si true, l'animal a un âge (et une faim) aléatoires ;
+     *                  sinon c'est un nouveau-né.
+     * @param field Le terrain.
+     * @param location La position, qui doit être libre.
+     * @param lifecycle L'horloge de la simulation.
+     * @return L'animal.
+     */
+    public Animal create(boolean randomAge, Field field, Location location, Lifecycle lifecycle)
+    {
+        try {
+            return (Animal) constructor.invokeExact(randomAge, field, location, lifecycle);
+        }
+        catch(RuntimeException | Error e) {
+            throw e;
+        }
+        catch(Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return La description de l'espèce.
+     */
+    public SpeciesSpec getSpec()
+    {
+        return spec;
+    }
+
+    /**
+     * @return La classe des animaux de l'espèce, par exemple pour leur
+     * donner une couleur ou s'en servir comme proie d'une autre espèce.
+     */
+    public Class getSpeciesClass()
+    {
+        return speciesClass;
+    }
+
+    public String toString()
+    {
+        return spec.toString();
+    }
+}
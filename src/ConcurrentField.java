@@ -0,0 +1,296 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Un terrain dont les cellules peuvent être modifiées par plusieurs fils
+ * à la fois, sans verrou. Chaque cellule est prise par une opération
+ * atomique (compareAndSet) : une naissance ou un déplacement réserve
+ * d'abord sa cellule (claim) et, si un autre fil l'a prise, essaie la
+ * position libre suivante. Un prédateur prend la cellule de sa proie
+ * par un échange atomique (replace) ; une proie qui a bougé ou qui a
+ * déjà été mangée fait échouer l'échange.
+ *
+ * Sur ce terrain, Simulator fait agir les animaux en parallèle. En
+ * contrepartie, les tuiles actives ne sont pas suivies (les parcours
+ * couvrent tout le terrain). Pendant la phase parallèle (voir
+ * beginParallel), les modifications destinées aux observateurs sont
+ * notées dans un tampon propre à chaque fil, sans verrou ; à la fin de
+ * la phase, les observateurs reçoivent, depuis un seul fil et pour
+ * chaque cellule modifiée, le retrait de son occupant initial puis le
+ * placement de son occupant final.
+ *
+ * @author Filipe Dias Morais
+ * @version 2026.10.19
+ */
+public class ConcurrentField extends Field
+{
+    // Accès atomique aux cellules.
+    private static final VarHandle CELLS = MethodHandles.arrayElementVarHandle(Object[].class);
+    // Le contenu d'une cellule réservée, vue comme libre par les lecteurs.
+    private static final Object RESERVED = new Object();
+
+    // Les cellules, ligne par ligne.
+    private final Object[] cells;
+    // Vrai pendant une phase parallèle où les observateurs sont prévenus en différé.
+    private boolean deferring;
+    // Le tampon des modifications de chaque fil.
+    private final ThreadLocal<Events> events = ThreadLocal.withInitial(this::newEvents);
+    // Tous les tampons créés, dans l'ordre de leur création.
+    private final List<Events> buffers = new ArrayList<Events>();
+
+    /**
+     * Crée un terrain partagé de dimensions données.
+     * @param depth Profondeur du terrain
+     * @param width Largeur du terrain
+     */
+    public ConcurrentField(int depth, int width)
+    {
+        super(depth, width, false, false);
+        cells = new Object[depth * width];
+    }
+
+    /**
+     * Réserve atomiquement une cellule libre.
+     */
+    public boolean claim(int row, int col)
+    {
+        return CELLS.compareAndSet(cells, index(row, col), null, RESERVED);
+    }
+
+    /**
+     * Rend une cellule réservée et restée inoccupée.
+     */
+    public void release(Location location)
+    {
+        CELLS.compareAndSet(cells, index(location.getRow(), location.getCol()), RESERVED, null);
+    }
+
+    /**
+     * Remplace atomiquement l'occupant d'une cellule.
+     */
+    public boolean replace(Location location, Object expected, Object animal)
+    {
+        int row = location.getRow();
+        int col = location.getCol();
+        if(!CELLS.compareAndSet(cells, index(row, col), expected, animal)) {
+            return false;
+        }
+        if(hasListeners()) {
+            if(expected != null) {
+                fireCleared(expected, row, col);
+            }
+            if(animal != null) {
+                firePlaced(animal, row, col);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Un générateur propre au fil appelant, pour éviter que les
+     * fils se disputent un générateur partagé.
+     */
+    public Random random()
+    {
+        return ThreadLocalRandom.current();
+    }
+
+    /**
+     * Ouvre une phase où plusieurs fils modifient le terrain : les
+     * modifications sont notées dans le tampon de chaque fil au lieu
+     * d'être transmises aux observateurs. À appeler depuis le fil de la
+     * simulation, avant de lancer les autres fils.
+     */
+    public void beginParallel()
+    {
+        deferring = hasListeners();
+    }
+
+    /**
+     * Ferme la phase parallèle et transmet aux observateurs les
+     * modifications notées. Les tampons des fils n'étant pas ordonnés
+     * entre eux, les modifications sont regroupées par cellule : un
+     * placement et un retrait du même occupant s'annulent, et il reste
+     * au plus le retrait de l'occupant initial puis le placement de
+     * l'occupant final. À appeler une fois les autres fils terminés.
+     */
+    public synchronized void endParallel()
+    {
+        if(!deferring) {
+            return;
+        }
+        deferring = false;
+        int total = 0;
+        for(Events buffer : buffers) {
+            total += buffer.size;
+        }
+        // Trier les modifications par cellule, chacune repérée par son rang dans le tampon fusionné.
+        long[] keys = new long[total];
+        int[] codes = new int[total];
+        Object[] animals = new Object[total];
+        int position = 0;
+        for(Events buffer : buffers) {
+            for(int i = 0; i < buffer.size; i++) {
+                keys[position] = ((long) (buffer.codes[i] >>> 1) << 32) | position;
+                codes[position] = buffer.codes[i];
+                animals[position] = buffer.animals[i];
+                position++;
+            }
+            buffer.clear();
+        }
+        Arrays.sort(keys);
+        boolean[] matched = new boolean[total];
+        int start = 0;
+        while(start < total) {
+            int end = start + 1;
+            while(end < total && keys[end] >>> 32 == keys[start] >>> 32) {
+                end++;
+            }
+            fireNet(keys, codes, animals, matched, start, end);
+            start = end;
+        }
+    }
+
+    /**
+     * Transmet l'effet net des modifications d'une cellule : les retraits
+     * restants, puis les placements restants.
+     */
+    private void fireNet(long[] keys, int[] codes, Object[] animals, boolean[] matched, int start, int end)
+    {
+        for(int i = start; i < end; i++) {
+            int a = (int) keys[i];
+            for(int j = i + 1; j < end && !matched[a]; j++) {
+                int b = (int) keys[j];
+                if(!matched[b] && animals[a] == animals[b] && (codes[a] & 1) != (codes[b] & 1)) {
+                    matched[a] = true;
+                    matched[b] = true;
+                }
+            }
+        }
+        int index = codes[(int) keys[start]] >>> 1;
+        int row = index / getWidth();
+        int col = index % getWidth();
+        for(int placed = 0; placed <= 1; placed++) {
+            for(int i = start; i < end; i++) {
+                int event = (int) keys[i];
+                if(!matched[event] && (codes[event] & 1) == placed) {
+                    if(placed == 1) {
+                        super.firePlaced(animals[event], row, col);
+                    }
+                    else {
+                        super.fireCleared(animals[event], row, col);
+                    }
+                }
+            }
+        }
+    }
+
+    protected void firePlaced(Object animal, int row, int col)
+    {
+        if(deferring) {
+            events.get().add(index(row, col) << 1 | 1, animal);
+        }
+        else {
+            super.firePlaced(animal, row, col);
+        }
+    }
+
+    protected void fireCleared(Object animal, int row, int col)
+    {
+        if(deferring) {
+            events.get().add(index(row, col) << 1, animal);
+        }
+        else {
+            super.fireCleared(animal, row, col);
+        }
+    }
+
+    /**
+     * Parcourt toutes les lignes du terrain : les tuiles actives ne
+     * sont pas suivies sur ce terrain.
+     */
+    public void forEachActiveRow(RowVisitor visitor)
+    {
+        for(int row = 0; row < getDepth(); row++) {
+            visitor.visit(row, 0, getWidth());
+        }
+    }
+
+    /**
+     * @return Le nombre total de tuiles, toutes considérées comme actives.
+     */
+    public int getActiveTileCount()
+    {
+        return ((getDepth() + TILE_SIZE - 1) / TILE_SIZE) * ((getWidth() + TILE_SIZE - 1) / TILE_SIZE);
+    }
+
+    protected void occupancyChanged(int row, int col, boolean occupied)
+    {
+        // Les tuiles actives ne sont pas suivies.
+    }
+
+    protected void clearCells()
+    {
+        Arrays.fill(cells, null);
+    }
+
+    protected Object readCell(int row, int col)
+    {
+        Object animal = CELLS.getAcquire(cells, index(row, col));
+        return animal == RESERVED ? null : animal;
+    }
+
+    protected void writeCell(int row, int col, Object animal)
+    {
+        CELLS.setRelease(cells, index(row, col), animal);
+    }
+
+    private int index(int row, int col)
+    {
+        return row * getWidth() + col;
+    }
+
+    /**
+     * Crée le tampon du fil appelant et le retient pour endParallel.
+     */
+    private synchronized Events newEvents()
+    {
+        Events buffer = new Events();
+        buffers.add(buffer);
+        return buffer;
+    }
+
+    /**
+     * Les modifications notées par un fil : pour chacune, l'index de la
+     * cellule décalé d'un bit (1 pour un placement, 0 pour un retrait)
+     * et l'occupant concerné.
+     */
+    private static class Events
+    {
+        private int[] codes = new int[64];
+        private Object[] animals = new Object[64];
+        private int size;
+
+        private void add(int code, Object animal)
+        {
+            if(size == codes.length) {
+                codes = Arrays.copyOf(codes, size * 2);
+                animals = Arrays.copyOf(animals, size * 2);
+            }
+            codes[size] = code;
+            animals[size] = animal;
+            size++;
+        }
+
+        private void clear()
+        {
+            Arrays.fill(animals, 0, size, null);
+            size = 0;
+        }
+    }
+}
@@ -49,6 +49,15 @@ public class Counter
     {
         count++;
     }
+
+    /**
+     * Augmente le compteur d'une quantité donnée.
+     * @param amount La quantité à ajouter.
+     */
+    public void increment(int amount)
+    {
+        count += amount;
+    }
     
     /**
      * Remet le compteur à zéro.
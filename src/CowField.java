@@ -0,0 +1,308 @@
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Un terrain copié à l'écriture, que l'on peut brancher en plusieurs
+ * variantes sans le recopier (voir Simulator.fork).
+ *
+ * Les cellules sont rangées par tuiles de TILE_SIZE x TILE_SIZE. Une
+ * branche partage les tuiles de son origine et ne copie une tuile qu'à
+ * la première écriture dans celle-ci : chaque branche ne paie que pour
+ * les tuiles qu'elle modifie. Le répertoire des tuiles est lui aussi
+ * partagé jusqu'à la première écriture.
+ *
+ * Les animaux sont des objets modifiables : au moment du branchement,
+ * ceux de l'origine sont figés, et chaque branche (l'origine comprise)
+ * les copie à mesure, tuile par tuile. Une tuile partagée est copiée,
+ * avec ses animaux, à sa première écriture, à la première lecture d'une
+ * de ses cellules occupées, ou lorsqu'un de ses animaux agit ou arrive
+ * à échéance (voir adopt et own). Seule l'espèce d'une cellule se lit
+ * sans copie.
+ *
+ * Chaque branche a son propre générateur aléatoire, créé à partir
+ * d'une base : ses actions se rejouent à l'identique, quel que soit
+ * l'ordre dans lequel les branches avancent.
+ *
+ * @author Filipe Dias Morais
+ * @version 2026.10.19
+ */
+public class CowField extends Field
+{
+    // Le nombre de cellules d'une tuile.
+    private static final int TILE_CELLS = TILE_SIZE * TILE_SIZE;
+    // La prochaine génération à attribuer ; des branches peuvent être créées depuis plusieurs fils.
+    private static final AtomicInteger nextGeneration = new AtomicInteger();
+
+    // Le nombre de colonnes de tuiles.
+    private final int tileCols;
+    // Les tuiles, null si elles n'ont jamais été occupées.
+    private Tile[] tiles;
+    // Indique que le répertoire des tuiles est partagé avec une autre branche.
+    private boolean directoryShared;
+    // La génération des tuiles appartenant à cette branche.
+    private int generation;
+    // L'horloge des copies des animaux figés, null tant qu'elle n'est pas fixée.
+    private Lifecycle lifecycle;
+    // Le générateur des actions de cette branche, null pour le générateur partagé.
+    private Random random;
+
+    /**
+     * Crée un terrain vide de dimensions données.
+     * @param depth Profondeur du terrain
+     * @param width Largeur du terrain
+     */
+    public CowField(int depth, int width)
+    {
+        super(depth, width, false, false);
+        tileCols = (width + TILE_SIZE - 1) / TILE_SIZE;
+        tiles = new Tile[tileCols * ((depth + TILE_SIZE - 1) / TILE_SIZE)];
+        generation = nextGeneration.getAndIncrement();
+    }
+
+    /**
+     * Crée une branche partageant les tuiles d'un terrain.
+     */
+    private CowField(CowField origin, long seed)
+    {
+        super(origin.getDepth(), origin.getWidth(), false, false);
+        tileCols = origin.tileCols;
+        tiles = origin.tiles;
+        directoryShared = true;
+        generation = nextGeneration.getAndIncrement();
+        random = new Random(seed);
+    }
+
+    /**
+     * Crée une branche de ce terrain, en temps constant. Les deux
+     * terrains partagent leurs tuiles, qui ne sont plus modifiées en
+     * place ; les animaux actuels sont figés et chaque terrain les
+     * copie à mesure, sur son horloge (voir setLifecycle).
+     * @param seed La base du générateur aléatoire de la branche.
+     * @return Le terrain de la nouvelle branche.
+     */
+    public CowField fork(long seed)
+    {
+        CowField branch = new CowField(this, seed);
+        directoryShared = true;
+        generation = nextGeneration.getAndIncrement();
+        return branch;
+    }
+
+    /**
+     * Fixe l'horloge de ce terrain, sur laquelle les copies des animaux
+     * figés sont programmées. Elle doit avoir été créée au branchement
+     * (voir Lifecycle.fork), et non partagée avec une autre branche.
+     * @param lifecycle L'horloge.
+     */
+    public void setLifecycle(Lifecycle lifecycle)
+    {
+        this.lifecycle = lifecycle;
+    }
+
+    /**
+     * Renvoie la copie propre à ce terrain d'un animal au moment où il
+     * agit, et la détache de l'animal figé : à n'appeler qu'une fois par
+     * animal figé, lors du premier pas après le branchement.
+     * @param animal Un animal figé au branchement, ou déjà propre à ce terrain.
+     * @return Sa copie, l'animal lui-même s'il est déjà propre à ce
+     *         terrain, null si sa copie est morte entre-temps.
+     */
+    public Animal adopt(Animal animal)
+    {
+        Animal copy = own(animal);
+        if(copy != null) {
+            copy.original = null;
+        }
+        return copy;
+    }
+
+    /**
+     * Renvoie la copie propre à ce terrain d'un animal figé, en copiant
+     * sa tuile au besoin. Une copie n'agit qu'après avoir été adoptée :
+     * jusque-là, elle reste à la position de l'animal figé, à moins
+     * d'être morte.
+     * @param animal Un animal figé au branchement, ou déjà propre à ce terrain.
+     * @return Sa copie, l'animal lui-même s'il est déjà propre à ce
+     *         terrain, null si sa copie est morte.
+     */
+    Animal own(Animal animal)
+    {
+        if(animal.getLifecycle() == lifecycle) {
+            return animal;
+        }
+        Location location = animal.getLocation();
+        if(location == null) {
+            return null;
+        }
+        int row = location.getRow();
+        int col = location.getCol();
+        Object copy = ownTile(tileOf(row, col)).cells[cellOf(row, col)];
+        if(copy instanceof Animal && ((Animal) copy).original == animal) {
+            return (Animal) copy;
+        }
+        return null;
+    }
+
+    /**
+     * @return Le générateur de cette branche, ou le générateur partagé
+     * pour un terrain qui n'est pas issu d'un branchement.
+     */
+    public Random random()
+    {
+        return random != null ? random : super.random();
+    }
+
+    /**
+     * @return Le nombre de tuiles appartenant à cette branche.
+     */
+    public int getOwnedTileCount()
+    {
+        int owned = 0;
+        for(Tile tile : tiles) {
+            if(tile != null && tile.generation == generation) {
+                owned++;
+            }
+        }
+        return owned;
+    }
+
+    /**
+     * Parcourt les lignes des tuiles occupées.
+     */
+    public void forEachActiveRow(RowVisitor visitor)
+    {
+        for(int t = 0; t < tiles.length; t++) {
+            if(tiles[t] != null && tiles[t].count > 0) {
+                int fromRow = (t / tileCols) * TILE_SIZE;
+                int fromCol = (t % tileCols) * TILE_SIZE;
+                int toRow = Math.min(fromRow + TILE_SIZE, getDepth());
+                int toCol = Math.min(fromCol + TILE_SIZE, getWidth());
+                for(int row = fromRow; row < toRow; row++) {
+                    visitor.visit(row, fromCol, toCol);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Le nombre de tuiles contenant au moins un animal.
+     */
+    public int getActiveTileCount()
+    {
+        int active = 0;
+        for(Tile tile : tiles) {
+            if(tile != null && tile.count > 0) {
+                active++;
+            }
+        }
+        return active;
+    }
+
+    protected void occupancyChanged(int row, int col, boolean occupied)
+    {
+        // La tuile vient d'être écrite : elle appartient à cette branche.
+        tiles[tileOf(row, col)].count += occupied ? 1 : -1;
+    }
+
+    /**
+     * Oublie toutes les tuiles, sans toucher à celles des autres branches.
+     */
+    protected void clearCells()
+    {
+        tiles = new Tile[tiles.length];
+        directoryShared = false;
+    }
+
+    /**
+     * Lit l'espèce d'une cellule sans copier sa tuile : une copie est de
+     * la même espèce que l'animal figé.
+     */
+    public Class getSpeciesAt(int row, int col)
+    {
+        Tile tile = tiles[tileOf(row, col)];
+        Object animal = tile == null ? null : tile.cells[cellOf(row, col)];
+        return animal == null ? null : animal.getClass();
+    }
+
+    /**
+     * Lit une cellule ; une cellule occupée d'une tuile partagée fait
+     * copier la tuile, pour que l'occupant rendu soit propre à ce terrain.
+     */
+    protected Object readCell(int row, int col)
+    {
+        int t = tileOf(row, col);
+        Tile tile = tiles[t];
+        if(tile == null) {
+            return null;
+        }
+        Object animal = tile.cells[cellOf(row, col)];
+        if(animal != null && tile.generation != generation) {
+            return ownTile(t).cells[cellOf(row, col)];
+        }
+        return animal;
+    }
+
+    protected void writeCell(int row, int col, Object animal)
+    {
+        ownTile(tileOf(row, col)).cells[cellOf(row, col)] = animal;
+    }
+
+    /**
+     * Renvoie une tuile appartenant à cette branche, en copiant le
+     * répertoire et la tuile s'ils sont partagés. Les animaux d'une
+     * tuile copiée sont copiés avec elle.
+     */
+    private Tile ownTile(int t)
+    {
+        if(directoryShared) {
+            tiles = tiles.clone();
+            directoryShared = false;
+        }
+        Tile tile = tiles[t];
+        if(tile == null) {
+            tile = new Tile(generation, new Object[TILE_CELLS], 0);
+            tiles[t] = tile;
+        }
+        else if(tile.generation != generation) {
+            Object[] cells = new Object[TILE_CELLS];
+            for(int i = 0; i < TILE_CELLS; i++) {
+                Object animal = tile.cells[i];
+                if(animal instanceof Animal && lifecycle != null) {
+                    animal = ((Animal) animal).copyFor(this, lifecycle);
+                }
+                cells[i] = animal;
+            }
+            tile = new Tile(generation, cells, tile.count);
+            tiles[t] = tile;
+        }
+        return tile;
+    }
+
+    private int tileOf(int row, int col)
+    {
+        return (row / TILE_SIZE) * tileCols + col / TILE_SIZE;
+    }
+
+    private static int cellOf(int row, int col)
+    {
+        return (row % TILE_SIZE) * TILE_SIZE + col % TILE_SIZE;
+    }
+
+    /**
+     * Une tuile : ses cellules, le nombre de cellules occupées et la
+     * génération de la branche qui peut la modifier en place.
+     */
+    private static class Tile
+    {
+        private final int generation;
+        private final Object[] cells;
+        private int count;
+
+        private Tile(int generation, Object[] cells, int count)
+        {
+            this.generation = generation;
+            this.cells = cells;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+import java.util.Arrays;
+
+/**
+ * Une grille de densité par espèce, maintenue au fil des modifications
+ * du terrain. Le terrain est découpé en blocs carrés ; chaque bloc
+ * compte les animaux de chaque espèce qu'il contient. Un arbre de
+ * Fenwick à deux dimensions par espèce permet de compter les animaux
+ * d'une région rectangulaire de blocs en temps logarithmique, sans
+ * parcourir les cellules du terrain.
+ *
+ * @author Filipe Dias Morais
+ * @version 2026.10.19
+ */
+public class DensityGrid implements FieldListener
+{
+    // Le côté d'un bloc, en cellules.
+    private final int blockSize;
+    // Le nombre de lignes et de colonnes de blocs.
+    private final int blockRows, blockCols;
+    // Les comptes de chaque bloc, par code d'espèce (null si l'espèce est absente).
+    private final int[][] counts;
+    // Les arbres de Fenwick, par code d'espèce.
+    private final int[][] trees;
+    // Le nombre total d'animaux, par code d'espèce.
+    private final int[] totals;
+
+    /**
+     * Crée une grille de densité pour un terrain et l'abonne à ses
+     * modifications. Le contenu actuel du terrain est compté une fois.
+     * @param field Le terrain à observer.
+     * @param blockSize Le côté d'un bloc, en cellules.
+     */
+    public DensityGrid(Field field, int blockSize)
+    {
+        if(blockSize <= 0) {
+            throw new IllegalArgumentException("Taille de bloc invalide : " + blockSize);
+        }
+        this.blockSize = blockSize;
+        blockRows = (field.getDepth() + blockSize - 1) / blockSize;
+        blockCols = (field.getWidth() + blockSize - 1) / blockSize;
+        counts = new int[Species.MAX_CODES][];
+        trees = new int[Species.MAX_CODES][];
+        totals = new int[Species.MAX_CODES];
+        field.forEachActiveRow((row, fromCol, toCol) -> {
+            for(int col = fromCol; col < toCol; col++) {
+                int code = field.getCodeAt(row, col);
+                if(code != Species.EMPTY) {
+                    add(code, row, col, 1);
+                }
+            }
+        });
+        field.addListener(this);
+    }
+
+    public void placed(Object animal, int row, int col)
+    {
+        add(Species.codeOf(animal), row, col, 1);
+    }
+
+    public void cleared(Object animal, int row, int col)
+    {
+        add(Species.codeOf(animal), row, col, -1);
+    }
+
+    /**
+     * @return Le côté d'un bloc, en cellules.
+     */
+    public int getBlockSize()
+    {
+        return blockSize;
+    }
+
+    /**
+     * @return Le nombre de lignes de blocs.
+     */
+    public int getBlockRows()
+    {
+        return blockRows;
+    }
+
+    /**
+     * @return Le nombre de colonnes de blocs.
+     */
+    public int getBlockCols()
+    {
+        return blockCols;
+    }
+
+    /**
+     * @param code Un code d'espèce.
+     * @return Le nombre d'animaux de cette espèce sur le terrain.
+     */
+    public int getTotal(int code)
+    {
+        return totals[code];
+    }
+
+    /**
+     * @param code Un code d'espèce.
+     * @param blockRow La ligne du bloc.
+     * @param blockCol La colonne du bloc.
+     * @return Le nombre d'animaux de cette espèce dans le bloc.
+     */
+    public int getBlockCount(int code, int blockRow, int blockCol)
+    {
+        int[] blocks = counts[code];
+        return blocks == null ? 0 : blocks[blockRow * blockCols + blockCol];
+    }
+
+    /**
+     * Compte les animaux d'une espèce dans une région rectangulaire de
+     * blocs, en O(log(lignes) * log(colonnes)).
+     * @param code Un code d'espèce.
+     * @param fromRow Première ligne de blocs, incluse.
+     * @param fromCol Première colonne de blocs, incluse.
+     * @param toRow Dernière ligne de blocs, exclue.
+     * @param toCol Dernière colonne de blocs, exclue.
+     * @return Le nombre d'animaux de cette espèce dans la région.
+     */
+    public int countBlocks(int code, int fromRow, int fromCol, int toRow, int toCol)
+    {
+        int[] tree = trees[code];
+        if(tree == null || fromRow >= toRow || fromCol >= toCol) {
+            return 0;
+        }
+        return prefix(tree, toRow, toCol) - prefix(tree, fromRow, toCol)
+             - prefix(tree, toRow, fromCol) + prefix(tree, fromRow, fromCol);
+    }
+
+    /**
+     * Copie les comptes de tous les blocs pour une espèce, ligne de
+     * blocs par ligne de blocs.
+     * @param code Un code d'espèce.
+     * @param dest Le tableau de destination, d'au moins getBlockRows() * getBlockCols() cases.
+     */
+    public void snapshot(int code, int[] dest)
+    {
+        int[] blocks = counts[code];
+        int size = blockRows * blockCols;
+        if(blocks == null) {
+            Arrays.fill(dest, 0, size, 0);
+        }
+        else {
+            System.arraycopy(blocks, 0, dest, 0, size);
+        }
+    }
+
+    /**
+     * Modifie le compte du bloc contenant une cellule.
+     */
+    private void add(int code, int row, int col, int delta)
+    {
+        if(counts[code] == null) {
+            counts[code] = new int[blockRows * blockCols];
+            trees[code] = new int[(blockRows + 1) * (blockCols + 1)];
+        }
+        int blockRow = row / blockSize;
+        int blockCol = col / blockSize;
+        counts[code][blockRow * blockCols + blockCol] += delta;
+        totals[code] += delta;
+        int[] tree = trees[code];
+        for(int r = blockRow + 1; r <= blockRows; r += r & -r) {
+            for(int c = blockCol + 1; c <= blockCols; c += c & -c) {
+                tree[r * (blockCols + 1) + c] += delta;
+            }
+        }
+    }
+
+    /**
+     * Somme des blocs des lignes [0, rows) et des colonnes [0, cols).
+     */
+    private int prefix(int[] tree, int rows, int cols)
+    {
+        int sum = 0;
+        for(int r = rows; r > 0; r -= r & -r) {
+            for(int c = cols; c > 0; c -= c & -c) {
+                sum += tree[r * (blockCols + 1) + c];
+            }
+        }
+        return sum;
+    }
+}
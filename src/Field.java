@@ -1,3 +1,5 @@
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -15,11 +17,28 @@ public class Field
 {
     // Un générateur de nombres aléatoires pour fournir des emplacements aléatoires.
     private static final Random rand = Randomizer.getRandom();
+    // Les relevés de voisinage, un par fil d'exécution.
+    private static final ThreadLocal<Neighbourhood> neighbourhoods =
+        ThreadLocal.withInitial(Neighbourhood::new);
+    // Le côté d'une tuile, en cellules.
+    public static final int TILE_SIZE = 16;
     
     // La profondeur et la largeur du champ.
     private int depth, width;
     // Zone mémoire pour les animaux.
     private Object[][] field;
+    // Les observateurs des modifications du terrain.
+    private List<FieldListener> listeners = new ArrayList<FieldListener>();
+    // Le nombre de colonnes de tuiles.
+    private int tileCols;
+    // Le nombre de cellules occupées de chaque tuile.
+    private int[] tileCounts;
+    // Les tuiles actives (contenant au moins un animal), dans le désordre.
+    private int[] activeTiles;
+    // Le nombre de tuiles actives.
+    private int activeCount;
+    // La position de chaque tuile dans activeTiles, -1 si elle est inactive.
+    private int[] activePositions;
 
     /**
      * Représente un terrain de dimensions données.
@@ -27,22 +46,71 @@ public class Field
      * @param width Largeur du terrain
      */
     public Field(int depth, int width)
+    {
+        this(depth, width, true);
+    }
+
+    /**
+     * Représente un terrain dont le stockage des cellules peut être
+     * fourni par une sous-classe (voir readCell et writeCell).
+     * @param depth Profondeur du terrain
+     * @param width Largeur du terrain
+     * @param allocate Si false, aucune grille d'objets n'est allouée.
+     */
+    protected Field(int depth, int width, boolean allocate)
+    {
+        this(depth, width, allocate, true);
+    }
+
+    /**
+     * Représente un terrain dont le stockage des cellules et, si
+     * trackTiles est false, le suivi des tuiles actives sont fournis par
+     * une sous-classe (voir occupancyChanged et forEachActiveRow).
+     * @param depth Profondeur du terrain
+     * @param width Largeur du terrain
+     * @param allocate Si false, aucune grille d'objets n'est allouée.
+     * @param trackTiles Si false, les tuiles actives ne sont pas suivies ici.
+     */
+    protected Field(int depth, int width, boolean allocate, boolean trackTiles)
     {
         this.depth = depth;
         this.width = width;
-        field = new Object[depth][width];
+        if(allocate) {
+            field = new Object[depth][width];
+        }
+        tileCols = (width + TILE_SIZE - 1) / TILE_SIZE;
+        if(trackTiles) {
+            int tiles = tileCols * ((depth + TILE_SIZE - 1) / TILE_SIZE);
+            tileCounts = new int[tiles];
+            activeTiles = new int[tiles];
+            activePositions = new int[tiles];
+            Arrays.fill(activePositions, -1);
+        }
     }
     
     /**
-     * Vide le terrain
+     * Vide le terrain.
+     * Seules les tuiles actives sont parcourues.
      */
     public void clear()
     {
-        for(int row = 0; row < depth; row++) {
-            for(int col = 0; col < width; col++) {
-                field[row][col] = null;
-            }
+        if(!listeners.isEmpty()) {
+            forEachActiveRow((row, fromCol, toCol) -> {
+                for(int col = fromCol; col < toCol; col++) {
+                    Object animal = readCell(row, col);
+                    if(animal != null) {
+                        fireCleared(animal, row, col);
+                    }
+                }
+            });
         }
+        clearCells();
+        for(int i = 0; i < activeCount; i++) {
+            int tile = activeTiles[i];
+            tileCounts[tile] = 0;
+            activePositions[tile] = -1;
+        }
+        activeCount = 0;
     }
     
     /**
@@ -51,7 +119,7 @@ public class Field
      */
     public void clear(Location location)
     {
-        field[location.getRow()][location.getCol()] = null;
+        setCell(location.getRow(), location.getCol(), null);
     }
     
     /**
@@ -76,7 +144,157 @@ public class Field
      */
     public void place(Object animal, Location location)
     {
-        field[location.getRow()][location.getCol()] = animal;
+        setCell(location.getRow(), location.getCol(), animal);
+    }
+
+    /**
+     * Réserve une cellule libre pour une naissance ou un déplacement.
+     * Sur ce terrain, parcouru par un seul fil, il suffit que la cellule
+     * soit libre ; ConcurrentField la réserve atomiquement, et aucun
+     * autre fil ne peut plus la prendre.
+     * @param row Ligne de la position.
+     * @param col Colonne de la position.
+     * @return true si la cellule est libre et réservée à l'appelant.
+     */
+    public boolean claim(int row, int col)
+    {
+        return readCell(row, col) == null;
+    }
+
+    /**
+     * Rend une cellule réservée par claim et restée inoccupée.
+     * @param location Position de la cellule.
+     */
+    public void release(Location location)
+    {
+        // Rien à rendre : claim ne réserve rien sur ce terrain.
+    }
+
+    /**
+     * Remplace l'occupant d'une cellule s'il est bien celui attendu.
+     * Sur ConcurrentField, le remplacement est atomique.
+     * @param location Position de la cellule.
+     * @param expected L'occupant attendu, null pour une cellule libre.
+     * @param animal Le nouvel occupant, null pour vider la cellule.
+     * @return true si la cellule contenait l'occupant attendu.
+     */
+    public boolean replace(Location location, Object expected, Object animal)
+    {
+        int row = location.getRow();
+        int col = location.getCol();
+        if(readCell(row, col) != expected) {
+            return false;
+        }
+        setCell(row, col, animal);
+        return true;
+    }
+
+    /**
+     * @return Le générateur aléatoire des actions des animaux.
+     */
+    public Random random()
+    {
+        return rand;
+    }
+
+    /**
+     * Parcourt les cellules des tuiles actives, par segments de ligne.
+     * Les cellules hors de ces segments sont vides. Le coût du parcours
+     * dépend de la surface occupée et non de la taille du terrain.
+     * Le terrain ne doit pas être modifié pendant le parcours.
+     * @param visitor Le visiteur appelé pour chaque segment.
+     */
+    public void forEachActiveRow(RowVisitor visitor)
+    {
+        for(int i = 0; i < activeCount; i++) {
+            int tile = activeTiles[i];
+            int fromRow = (tile / tileCols) * TILE_SIZE;
+            int fromCol = (tile % tileCols) * TILE_SIZE;
+            int toRow = Math.min(fromRow + TILE_SIZE, depth);
+            int toCol = Math.min(fromCol + TILE_SIZE, width);
+            for(int row = fromRow; row < toRow; row++) {
+                visitor.visit(row, fromCol, toCol);
+            }
+        }
+    }
+
+    /**
+     * Parcourt les cellules des tuiles actives comme forEachActiveRow,
+     * mais par segments aussi longs que possible : les tuiles actives
+     * voisines d'une même bande de tuiles sont réunies, si bien qu'une
+     * bande entièrement active est parcourue ligne entière par ligne
+     * entière. Les bandes sont visitées de haut en bas. Sert aux
+     * parcours qui traitent plusieurs cellules à la fois (voir CellKernels).
+     * @param visitor Le visiteur appelé pour chaque segment.
+     */
+    public void forEachActiveSpan(RowVisitor visitor)
+    {
+        if(tileCounts == null) {
+            // Tuiles suivies par la sous-classe : ses segments suffisent.
+            forEachActiveRow(visitor);
+            return;
+        }
+        int[] tiles = Arrays.copyOf(activeTiles, activeCount);
+        Arrays.sort(tiles);
+        int i = 0;
+        while(i < tiles.length) {
+            int first = tiles[i];
+            int band = first / tileCols;
+            int last = first;
+            while(++i < tiles.length && tiles[i] == last + 1 && tiles[i] / tileCols == band) {
+                last = tiles[i];
+            }
+            int fromRow = band * TILE_SIZE;
+            int toRow = Math.min(fromRow + TILE_SIZE, depth);
+            int fromCol = (first % tileCols) * TILE_SIZE;
+            int toCol = Math.min((last % tileCols + 1) * TILE_SIZE, width);
+            for(int row = fromRow; row < toRow; row++) {
+                visitor.visit(row, fromCol, toCol);
+            }
+        }
+    }
+
+    /**
+     * Construit le masque des cellules libres d'une ligne : le bit i du
+     * mot i / 64 vaut 1 si la cellule (row, i) est vide. Sert à ne
+     * visiter que les cellules libres d'une ligne (voir Simulator).
+     * @param row La ligne.
+     * @param mask Le masque, d'au moins (getWidth() + 63) / 64 mots.
+     */
+    public void freeMask(int row, long[] mask)
+    {
+        Arrays.fill(mask, 0, (width + 63) >>> 6, 0L);
+        for(int col = 0; col < width; col++) {
+            if(readCell(row, col) == null) {
+                mask[col >>> 6] |= 1L << col;
+            }
+        }
+    }
+
+    /**
+     * @return Le nombre de tuiles contenant au moins un animal.
+     */
+    public int getActiveTileCount()
+    {
+        return activeCount;
+    }
+
+    /**
+     * Ajoute un observateur des modifications du terrain.
+     * @param listener L'observateur à prévenir.
+     */
+    public void addListener(FieldListener listener)
+    {
+        listeners.add(listener);
+    }
+
+    /**
+     * Retire un observateur des modifications du terrain.
+     * @param listener L'observateur à retirer.
+     */
+    public void removeListener(FieldListener listener)
+    {
+        listeners.remove(listener);
     }
     
     /**
@@ -96,10 +314,177 @@ public class Field
      * @return Un animal à cette position, null si aucun
      */
     public Object getObjectAt(int row, int col)
+    {
+        return readCell(row, col);
+    }
+
+    /**
+     * Retourne l'espèce (la classe) de l'animal à la position donnée.
+     * @param row Ligne de la position
+     * @param col Colonne de la position
+     * @return La classe de l'animal à cette position, null si aucun
+     */
+    public Class getSpeciesAt(int row, int col)
+    {
+        Object animal = readCell(row, col);
+        return animal == null ? null : animal.getClass();
+    }
+
+    /**
+     * Retourne le code d'espèce (voir Species) de l'animal à la position
+     * donnée.
+     * @param row Ligne de la position
+     * @param col Colonne de la position
+     * @return Le code de l'espèce, Species.EMPTY si la cellule est vide
+     */
+    public int getCodeAt(int row, int col)
+    {
+        return Species.codeOf(getSpeciesAt(row, col));
+    }
+
+    /**
+     * Renvoie la clé de localité d'une position : des positions de clés
+     * proches sont proches dans le stockage du terrain. Ici, les
+     * cellules sont rangées ligne par ligne (voir MortonField).
+     * @param row Ligne de la position
+     * @param col Colonne de la position
+     * @return La clé, positive.
+     */
+    public int getLocalityKey(int row, int col)
+    {
+        return row * width + col;
+    }
+
+    /**
+     * Modifie une cellule et prévient les observateurs.
+     */
+    private void setCell(int row, int col, Object animal)
+    {
+        Object previous = readCell(row, col);
+        writeCell(row, col, animal);
+        if(previous == null && animal != null) {
+            occupancyChanged(row, col, true);
+        }
+        else if(previous != null && animal == null) {
+            occupancyChanged(row, col, false);
+        }
+        if(listeners.isEmpty()) {
+            return;
+        }
+        if(previous != null) {
+            fireCleared(previous, row, col);
+        }
+        if(animal != null) {
+            firePlaced(animal, row, col);
+        }
+    }
+
+    /**
+     * @return true si au moins un observateur suit le terrain.
+     */
+    protected boolean hasListeners()
+    {
+        return !listeners.isEmpty();
+    }
+
+    /**
+     * Prévient les observateurs qu'un occupant a été placé.
+     */
+    protected void firePlaced(Object animal, int row, int col)
+    {
+        for(FieldListener listener : listeners) {
+            listener.placed(animal, row, col);
+        }
+    }
+
+    /**
+     * Prévient les observateurs qu'un occupant a été retiré.
+     */
+    protected void fireCleared(Object animal, int row, int col)
+    {
+        for(FieldListener listener : listeners) {
+            listener.cleared(animal, row, col);
+        }
+    }
+
+    /**
+     * Met à jour les tuiles actives lorsqu'une cellule devient occupée
+     * ou vide. Les sous-classes qui écrivent dans leur stockage sans
+     * passer par place ou clear doivent l'appeler.
+     * @param row Ligne de la cellule
+     * @param col Colonne de la cellule
+     * @param occupied true si la cellule vient d'être occupée
+     */
+    protected void occupancyChanged(int row, int col, boolean occupied)
+    {
+        int tile = (row / TILE_SIZE) * tileCols + col / TILE_SIZE;
+        if(occupied) {
+            if(tileCounts[tile]++ == 0) {
+                activePositions[tile] = activeCount;
+                activeTiles[activeCount++] = tile;
+            }
+        }
+        else if(--tileCounts[tile] == 0) {
+            // Retirer la tuile en la remplaçant par la dernière tuile active.
+            int position = activePositions[tile];
+            int last = activeTiles[--activeCount];
+            activeTiles[position] = last;
+            activePositions[last] = position;
+            activePositions[tile] = -1;
+        }
+    }
+
+    /**
+     * Vide les cellules des tuiles actives, sans prévenir les observateurs.
+     * Les sous-classes peuvent le remplacer par un effacement en bloc.
+     */
+    protected void clearCells()
+    {
+        forEachActiveRow((row, fromCol, toCol) -> {
+            for(int col = fromCol; col < toCol; col++) {
+                writeCell(row, col, null);
+            }
+        });
+    }
+
+    /**
+     * Lit le contenu d'une cellule dans le stockage du terrain.
+     * @param row Ligne de la position
+     * @param col Colonne de la position
+     * @return Le contenu de la cellule, null si elle est vide
+     */
+    protected Object readCell(int row, int col)
     {
         return field[row][col];
     }
+
+    /**
+     * Écrit le contenu d'une cellule dans le stockage du terrain.
+     * @param row Ligne de la position
+     * @param col Colonne de la position
+     * @param animal Le nouveau contenu, null pour vider la cellule
+     */
+    protected void writeCell(int row, int col, Object animal)
+    {
+        field[row][col] = animal;
+    }
     
+    /**
+     * Relève en un seul parcours les positions adjacentes à une position
+     * donnée, classées en libres, proies ou autres, dans un ordre
+     * aléatoire. Le relevé est propre au fil d'exécution appelant et
+     * n'est valable que jusqu'à son prochain appel à cette méthode.
+     * @param location La position dont relever le voisinage.
+     * @param prey La classe des proies, null si l'animal ne chasse pas.
+     * @return Le relevé du voisinage.
+     */
+    public Neighbourhood scanNeighbourhood(Location location, Class prey)
+    {
+        Neighbourhood neighbourhood = neighbourhoods.get();
+        neighbourhood.scan(this, location.getRow(), location.getCol(), prey, random());
+        return neighbourhood;
+    }
+
     /**
      * Génère une position aléatoire adjacente à une
      * position donnée, éventuellement la même.
@@ -181,7 +566,7 @@ public class Field
             
             // Mélange la liste. Plusieurs autres méthodes reposent sur le fait
             // que la liste est dans un ordre aléatoire.
-            Collections.shuffle(locations, rand);
+            Collections.shuffle(locations, random());
         }
         return locations;
     }
@@ -203,4 +588,17 @@ public class Field
     {
         return width;
     }
+
+    /**
+     * Un visiteur des segments de ligne d'un terrain.
+     */
+    public interface RowVisitor
+    {
+        /**
+         * @param row La ligne du segment.
+         * @param fromCol La première colonne du segment, incluse.
+         * @param toCol La dernière colonne du segment, exclue.
+         */
+        void visit(int row, int fromCol, int toCol);
+    }
 }
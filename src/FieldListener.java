@@ -0,0 +1,26 @@
+/**
+ * Un observateur des modifications des cellules d'un terrain.
+ * Il est prévenu chaque fois qu'un occupant est placé sur une cellule
+ * ou en est retiré.
+ *
+ * @author Filipe Dias Morais
+ * @version 2026.10.19
+ */
+public interface FieldListener
+{
+    /**
+     * Un occupant a été placé sur une cellule.
+     * @param animal L'occupant placé.
+     * @param row Ligne de la cellule.
+     * @param col Colonne de la cellule.
+     */
+    void placed(Object animal, int row, int col);
+
+    /**
+     * Un occupant a été retiré d'une cellule, ou remplacé par un autre.
+     * @param animal L'occupant retiré.
+     * @param row Ligne de la cellule.
+     * @param col Colonne de la cellule.
+     */
+    void cleared(Object animal, int row, int col);
+}
@@ -1,5 +1,7 @@
 import java.awt.Color;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * Cette classe collecte et fournit des données statistiques sur l'état
@@ -47,6 +49,22 @@ public class FieldStats
         return buffer.toString();
     }
     
+    /**
+     * Obtenir le nombre d'animaux de chaque espèce présente sur le terrain.
+     * @return Les comptes, par nom de classe.
+     */
+    public Map<String, Integer> getCounts(Field field)
+    {
+        if(!countsValid) {
+            generateCounts(field);
+        }
+        Map<String, Integer> result = new TreeMap<String, Integer>();
+        for(Counter info : counters.values()) {
+            result.put(info.getName(), info.getCount());
+        }
+        return result;
+    }
+    
     /**
      * Invalide l'ensemble de statistiques courant ; remet
      * tous les compteurs à zéro.
@@ -65,14 +83,24 @@ public class FieldStats
      * @param animalClass La classe de l'animal à incrémenter.
      */
     public void incrementCount(Class animalClass)
+    {
+        incrementCount(animalClass, 1);
+    }
+
+    /**
+     * Augmente le compteur d'une classe d'animaux.
+     * @param animalClass La classe de l'animal à compter.
+     * @param amount Le nombre d'animaux à ajouter.
+     */
+    public void incrementCount(Class animalClass, int amount)
     {
         Counter count = counters.get(animalClass);
         if(count == null) {
             // pas encore de compteur pour cette espèce - en créer une
-            count = new Counter(animalClass.getName());
+            count = new Counter(Species.nameOf(animalClass));
             counters.put(animalClass, count);
         }
-        count.increment();
+        count.increment(amount);
     }
 
     /**
@@ -107,20 +135,33 @@ public class FieldStats
     /**
      * Calcule le nombre de renards (foxes) et lapins (rabbits).
      * Ces nombres ne sont pas mis à jour lors du placement des
-     * animaux, mais seulement sur demande.
+     * animaux, mais seulement sur demande. Seules les tuiles
+     * actives du terrain sont parcourues.
      * @param field Le terrain pour lequel générer les statistiques.
      */
     private void generateCounts(Field field)
     {
         reset();
-        for(int row = 0; row < field.getDepth(); row++) {
-            for(int col = 0; col < field.getWidth(); col++) {
-                Object animal = field.getObjectAt(row, col);
-                if(animal != null) {
-                    incrementCount(animal.getClass());
+        if(field instanceof CompactField) {
+            // Compter directement sur les codes d'espèce, huit cellules à la fois.
+            int[] codes = new int[Species.MAX_CODES];
+            ((CompactField) field).countCodes(codes);
+            for(int code = 1; code < codes.length; code++) {
+                if(codes[code] > 0) {
+                    incrementCount(Species.classOf(code), codes[code]);
                 }
             }
+            countsValid = true;
+            return;
         }
+        field.forEachActiveRow((row, fromCol, toCol) -> {
+            for(int col = fromCol; col < toCol; col++) {
+                Class species = field.getSpeciesAt(row, col);
+                if(species != null) {
+                    incrementCount(species);
+                }
+            }
+        });
         countsValid = true;
     }
 }
@@ -1,5 +1,4 @@
 import java.util.List;
-import java.util.Iterator;
 import java.util.Random;
 
 /**
@@ -13,16 +12,16 @@ public class Fox extends Animal {
     // Caractéristiques partagées par tous les renards (champs statistiques).
 
     // L'âge à partir duquel un renard peut se reproduire
-    private static final int BREEDING_AGE = 10;
+    static final int BREEDING_AGE = 10;
     // L'âge maximal d'un renard
-    private static final int MAX_AGE = 150;
+    static final int MAX_AGE = 150;
     // La probabilité de reproduction d'un renard
-    private static final double BREEDING_PROBABILITY = 0.35;
+    static final double BREEDING_PROBABILITY = 0.35;
     // La taille maximale d'une portée
-    private static final int MAX_LITTER_SIZE = 5;
+    static final int MAX_LITTER_SIZE = 5;
     // La valeur nutritive d'un lapin. C'est le nombre de pas qu'un renard 
     // peut réaliser avant de devoir manger.
-    private static final int RABBIT_FOOD_VALUE = 7;
+    static final int RABBIT_FOOD_VALUE = 7;
     // Un générateur de nombres aléatoires commun pour contrôler les reproductions.
 
 
@@ -30,8 +29,8 @@ public class Fox extends Animal {
 
     // L'âge du renard.
     // Private int age ;
-    // La réserve alimentaire du renard, augmentée lorsque le renard mange des lapins.
-    private int foodLevel;
+    // La réserve alimentaire du renard n'est pas décomptée à chaque pas :
+    // chaque repas programme sa mort de faim (voir Lifecycle).
 
     /**
      * Crée un renard. Un renard peut être créé comme nouveau-né (âge nul et non affamé)
@@ -40,104 +39,46 @@ public class Fox extends Animal {
      * @param randomAge Si true, le renard aura un âge et un niveau de faim aléatoires.
      * @param field     Le terrain actuellement occupé.
      * @param location  L'emplacement sur le terrain.
+     * @param lifecycle L'horloge de la simulation.
      */
-    public Fox(boolean randomAge, Field field, Location location) {
-        super(field, location);
+    public Fox(boolean randomAge, Field field, Location location, Lifecycle lifecycle) {
+        super(field, location, lifecycle);
 
         super.setAlive();
         super.setField(field);
         super.setLocation(location);
         if (randomAge) {
-            setAge(rand.nextInt(MAX_AGE));
-            foodLevel = rand.nextInt(RABBIT_FOOD_VALUE);
+            Random random = getField().random();
+            setAge(random.nextInt(MAX_AGE));
+            scheduleDeath(getStep() + Math.max(random.nextInt(RABBIT_FOOD_VALUE), 1));
         } else {
             // laisser l'âge à zéro
-            foodLevel = RABBIT_FOOD_VALUE;
+            scheduleDeath(getStep() + RABBIT_FOOD_VALUE);
         }
     }
 
     /**
      * Ce que fait le renard la plupart du temps : il chasse des lapins.
-     * Durant cette chasse, il peut se reproduire, mourir de faim
-     * ou mourir de vieillesse.
-     * //* @param field Le terrain actuellement occupé.
+     * Durant cette chasse, il peut se reproduire. La mort de faim ou de
+     * vieillesse est traitée par l'horloge de la simulation, avant le pas.
+     * Le renard suit le pas commun des animaux (voir Animal.step) : il
+     * donne naissance, mange le premier lapin vivant adjacent et prend sa
+     * place, sinon se déplace, ou meurt de surpopulation.
      *
      * @param newFoxes Une liste à laquelle ajouter les nouveau-nés.
      */
     public void act(List<Animal> newFoxes) {
-        incrementAge();
-        incrementHunger();
-        if (isAlive()) {
-            giveBirth(newFoxes);
-            // Se déplacer vers une source de nourriture si on en trouve une.
-            Location newLocation = findFood(getLocation());
-            if (newLocation == null) {
-                // pas de nourriture trouvée - se déplacer dans un emplacement libre.
-                newLocation = getField().freeAdjacentLocation(getLocation());
-            }
-            // Voir s'il était possible de se déplacer.
-            if (newLocation != null) {
-                setLocation(newLocation);
-            } else {
-                // Surpopulation.
-                setDead();
-            }
-        }
-    }
-
-
-    /**
-     * Rend ce renard plus affamé. Peut provoquer la mort.
-     */
-    private void incrementHunger() {
-        foodLevel--;
-        if (foodLevel <= 0) {
-            setDead();
-        }
+        step(newFoxes, Rabbit.class, RABBIT_FOOD_VALUE);
     }
 
     /**
-     * Indique au renard de chercher des lapins dans les positions adjacentes.
-     * Seul le premier lapin vivant est mangé.
+     * Crée un renard nouveau-né, non affamé.
      *
-     * @param location Position actuelle du renard.
-     * @return La position où la nourriture a été trouvée, null si rien trouvé.
+     * @param location La position du nouveau-né, libre.
+     * @return Le nouveau-né.
      */
-    private Location findFood(Location location) {
-        List<Location> adjacent = getField().adjacentLocations(location);
-        Iterator<Location> it = adjacent.iterator();
-        while (it.hasNext()) {
-            Location where = it.next();
-            Object animal = getField().getObjectAt(where);
-            if (animal instanceof Rabbit) {
-                Rabbit rabbit = (Rabbit) animal;
-                if (rabbit.isAlive()) {
-                    rabbit.setDead();
-                    foodLevel = RABBIT_FOOD_VALUE;
-                    // Retirer le lapin mort du terrain.
-                    return where;
-                }
-            }
-        }
-        return null;
-    }
-
-    /**
-     * Vérifie si oui ou non ce renard doit donner naissance à ce pas.
-     * Les naissances auront lieu dans les emplacements adjacents libres.
-     *
-     * @param newFoxes Une liste pour ajouter les renards nouveau-nés.
-     */
-    private void giveBirth(List<Animal> newFoxes) {
-        // Les renards naissent dans les positions adjacentes.
-        // Obtenir une liste des positions adjacentes libres.
-        List<Location> free = getField().getFreeAdjacentLocations(getLocation());
-        int births = breed();
-        for (int b = 0; b < births && free.size() > 0; b++) {
-            Location loc = free.remove(0);
-            Fox young = new Fox(false, getField(), loc);
-            newFoxes.add(young);
-        }
+    protected Animal newborn(Location location) {
+        return new Fox(false, getField(), location, getLifecycle());
     }
 
     /**
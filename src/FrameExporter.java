@@ -0,0 +1,198 @@
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import javax.imageio.ImageIO;
+
+/**
+ * Exporte l'état du terrain sous forme d'images PNG numérotées, sans
+ * fenêtre d'affichage. À chaque pas retenu, les codes d'espèce du
+ * terrain sont copiés sur le fil de la simulation ; le rendu et
+ * l'encodage se font dans un groupe de fils. Les fichiers sont écrits
+ * dans l'ordre des images (frame_000000.png, frame_000001.png, ...).
+ * Le nombre d'images en attente est borné : la simulation n'attend
+ * que si les encodeurs ont pris ce retard.
+ *
+ * @author Filipe Dias Morais
+ * @version 2026.10.19
+ */
+public class FrameExporter implements SimulationListener, Closeable
+{
+    // Couleur des positions vides.
+    private static final Color EMPTY_COLOR = Color.white;
+    // Couleur des espèces sans couleur définie.
+    private static final Color UNKNOWN_COLOR = Color.gray;
+
+    // Le répertoire des images.
+    private final Path directory;
+    // Un pas sur interval est exporté.
+    private final int interval;
+    // Le nombre de pixels par cellule.
+    private final int scale;
+    // Les fils de rendu et d'encodage.
+    private final ExecutorService encoders;
+    // Limite le nombre d'images en attente.
+    private final Semaphore pending;
+    // La couleur de chaque code d'espèce, en RGB.
+    private final int[] palette;
+    // L'écriture de l'image précédente, pour garder l'ordre des fichiers.
+    private CompletableFuture<Void> lastWrite;
+    // Le numéro de la prochaine image.
+    private int frame;
+
+    /**
+     * Crée un exportateur avec un fil d'encodage par processeur.
+     * @param directory Le répertoire des images, créé au besoin.
+     * @param interval Un pas sur interval est exporté.
+     * @param scale Le nombre de pixels par cellule.
+     * @throws IOException Si le répertoire ne peut pas être créé.
+     */
+    public FrameExporter(Path directory, int interval, int scale) throws IOException
+    {
+        this(directory, interval, scale, Runtime.getRuntime().availableProcessors(), 16);
+    }
+
+    /**
+     * Crée un exportateur.
+     * @param directory Le répertoire des images, créé au besoin.
+     * @param interval Un pas sur interval est exporté.
+     * @param scale Le nombre de pixels par cellule.
+     * @param threads Le nombre de fils d'encodage.
+     * @param maxPending Le nombre maximal d'images en attente d'écriture.
+     * @throws IOException Si le répertoire ne peut pas être créé.
+     */
+    public FrameExporter(Path directory, int interval, int scale, int threads, int maxPending)
+        throws IOException
+    {
+        if(interval <= 0 || scale <= 0 || threads <= 0 || maxPending <= 0) {
+            throw new IllegalArgumentException("Paramètres d'exportation invalides");
+        }
+        this.directory = Files.createDirectories(directory);
+        this.interval = interval;
+        this.scale = scale;
+        encoders = Executors.newFixedThreadPool(threads);
+        pending = new Semaphore(maxPending);
+        palette = new int[Species.MAX_CODES];
+        for(int code = 0; code < palette.length; code++) {
+            palette[code] = UNKNOWN_COLOR.getRGB();
+        }
+        palette[Species.EMPTY] = EMPTY_COLOR.getRGB();
+        setColor(Rabbit.class, Color.orange);
+        setColor(Fox.class, Color.blue);
+        lastWrite = CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Définit la couleur à utiliser pour une classe donnée d'animaux,
+     * avant l'exportation de la première image.
+     * @param animalClass L'objet Class de l'animal.
+     * @param color La couleur à utiliser pour la classe donnée.
+     */
+    public void setColor(Class animalClass, Color color)
+    {
+        palette[Species.codeOf(animalClass)] = color.getRGB();
+    }
+
+    /**
+     * Exporte le terrain si le pas est retenu.
+     */
+    public void stepCompleted(int step, Field field)
+    {
+        if(step % interval != 0) {
+            return;
+        }
+        pending.acquireUninterruptibly();
+        byte[] codes = snapshot(field);
+        int depth = field.getDepth();
+        int width = field.getWidth();
+        Path file = directory.resolve(String.format("frame_%06d.png", frame++));
+        CompletableFuture<byte[]> png = CompletableFuture.supplyAsync(() -> encode(codes, depth, width), encoders);
+        lastWrite = lastWrite.thenAcceptBoth(png, (previous, bytes) -> {
+            try {
+                Files.write(file, bytes);
+            }
+            catch(IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }).whenComplete((result, error) -> pending.release());
+    }
+
+    /**
+     * Attend l'écriture des images en attente et arrête les encodeurs.
+     * @throws IOException Si une image n'a pas pu être écrite.
+     */
+    public void close() throws IOException
+    {
+        try {
+            lastWrite.join();
+        }
+        catch(RuntimeException e) {
+            if(e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw e;
+        }
+        finally {
+            encoders.shutdown();
+        }
+    }
+
+    /**
+     * Copie les codes d'espèce du terrain.
+     */
+    private byte[] snapshot(Field field)
+    {
+        byte[] codes = new byte[field.getDepth() * field.getWidth()];
+        if(field instanceof CompactField) {
+            ((CompactField) field).copyCodes(codes);
+            return codes;
+        }
+        int width = field.getWidth();
+        field.forEachActiveRow((row, fromCol, toCol) -> {
+            for(int col = fromCol; col < toCol; col++) {
+                codes[row * width + col] = (byte) field.getCodeAt(row, col);
+            }
+        });
+        return codes;
+    }
+
+    /**
+     * Dessine les codes d'espèce dans une image et l'encode en PNG.
+     */
+    private byte[] encode(byte[] codes, int depth, int width)
+    {
+        BufferedImage image = new BufferedImage(width * scale, depth * scale, BufferedImage.TYPE_INT_RGB);
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        int imageWidth = width * scale;
+        for(int row = 0; row < depth; row++) {
+            int line = row * scale * imageWidth;
+            for(int col = 0; col < width; col++) {
+                int rgb = palette[codes[row * width + col] & 0xFF];
+                int start = line + col * scale;
+                for(int x = 0; x < scale; x++) {
+                    pixels[start + x] = rgb;
+                }
+            }
+            for(int y = 1; y < scale; y++) {
+                System.arraycopy(pixels, line, pixels, line + y * imageWidth, imageWidth);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(image, "png", out);
+        }
+        catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
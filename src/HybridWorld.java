@@ -0,0 +1,740 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Un monde à deux résolutions, pour les très grands terrains : les
+ * renards et les lapins sont simulés un à un dans une région d'intérêt
+ * (le foyer), et ailleurs comme des nombres d'animaux par bloc.
+ *
+ * Le monde est découpé en blocs carrés. Le foyer, un rectangle de
+ * blocs, est un terrain ordinaire animé par un Simulator. Chaque autre
+ * bloc ne retient que son nombre de lapins, de jeunes renards et de
+ * renards adultes, que des règles aléatoires font évoluer à chaque pas
+ * d'après les constantes de Rabbit et de Fox : vieillesse,
+ * surpeuplement, chasse, faim, maturité et naissances dans les cellules
+ * libres. Les jeunes renards sont comptés par âge : un renard doit
+ * avoir mangé avant la fin de sa première réserve pour atteindre l'âge
+ * de se reproduire, et un simple taux de maturité laisserait les
+ * renards se multiplier sans lapins. Les animaux d'un bloc passent
+ * ensuite dans les blocs voisins au rythme d'une marche au hasard d'une
+ * cellule par pas.
+ *
+ * À la frontière, les animaux changent de représentation dans les deux
+ * sens : un animal du bord du foyer qui le franchit quitte le terrain
+ * et compte dans le bloc voisin ; un animal d'un bloc qui entre dans le
+ * foyer y est créé sur une cellule libre du bord, avec un âge et une
+ * réserve au hasard comme au peuplement (il reste dans son bloc si le
+ * bord est plein). L'âge et la réserve d'un animal qui sort du foyer
+ * sont perdus.
+ *
+ * Les règles des blocs sont étalonnées sur la simulation des animaux
+ * (512x512, 4 graines, pas 100 à 600) : environ 0,11 lapin et 0,05
+ * renard par cellule, autant pour un monde de 32x32 blocs de 16 au
+ * foyer d'un bloc (16 graines). Sans le regroupement des lapins
+ * (PREY_CLUSTERING), les blocs comptaient deux fois plus de lapins que
+ * le terrain, et ce surplus entrait dans le foyer par la frontière. Il
+ * reste un écart près de la frontière : un foyer de 4x4 blocs au milieu
+ * de 16x16 compte environ 0,08 lapin par cellule, ses blocs voisins
+ * autant, et les blocs éloignés 0,10.
+ *
+ * Le coût d'un pas est celui de la simulation du foyer, plus quelques
+ * tirages par bloc hors du foyer : des blocs de 16 cellules de côté
+ * divisent par 256 le nombre d'éléments à traiter hors du foyer. Les
+ * probabilités des règles sont lues dans des tables calculées une fois
+ * par nombre d'animaux d'un bloc, et les blocs vides ou au repos (sans
+ * renard et à l'équilibre des lapins, voir markResting) ne font aucun
+ * tirage.
+ *
+ * @author Filipe Dias Morais
+ * @version 2026.10.19
+ */
+public class HybridWorld
+{
+    // La part des déplacements d'une cellule qui franchissent un bord
+    // donné, pour une cellule de ce bord : 3 voisins sur 8.
+    private static final double EDGE_CROSSING = 3.0 / 8;
+    // Au-delà de cette variance, un tirage binomial suit la loi normale.
+    private static final double NORMAL_VARIANCE = 10;
+    // Le nombre d'essais pour trouver une cellule libre à un animal qui entre dans le foyer.
+    private static final int PLACEMENT_TRIES = 4;
+    // La part des voisins où un renard d'un bloc rencontre des lapins au
+    // rythme du mélange parfait (voir MeanFieldModel). Elle est ajustée pour
+    // que la densité moyenne des renards suive celle de la simulation des
+    // animaux, environ 0,05 par cellule.
+    private static final double BLOCK_MIXING = 0.5;
+    // L'occupation du voisinage d'un lapin, rapportée à celle de son bloc :
+    // les lapins vivent en groupes, et trouvent moins de place pour leurs
+    // petits que dans un bloc mélangé. Ajustée pour que la densité moyenne
+    // des lapins suive celle de la simulation des animaux (voir plus haut).
+    private static final double PREY_CLUSTERING = 1.2;
+    // Le nombre de voisins d'une cellule.
+    private static final int NEIGHBOURS = 8;
+    // Les catégories d'animaux d'un bloc : les lapins, les renards
+    // adultes, puis les jeunes renards de chaque âge.
+    private static final int RABBITS = 0;
+    private static final int FOXES = 1;
+    private static final int YOUNG_FOXES = 2;
+    // Les côtés d'un bloc : nord, sud, ouest, est.
+    private static final int[] SIDE_ROWS = { -1, 1, 0, 0 };
+    private static final int[] SIDE_COLS = { 0, 0, -1, 1 };
+
+    // Un générateur de nombres aléatoires pour les règles des blocs.
+    private static final Random rand = Randomizer.getRandom();
+
+    // Le nombre de lignes et de colonnes de blocs, et le côté d'un bloc.
+    private final int blockRows, blockCols, blockSize;
+    // Le foyer, en blocs : première ligne, première colonne, lignes, colonnes.
+    private final int focusRow, focusCol, focusRows, focusCols;
+    // Les probabilités de création d'un renard et d'un lapin au peuplement.
+    private final double foxCreationProbability, rabbitCreationProbability;
+    // Les espèces, d'après les constantes de Rabbit et de Fox.
+    private final SpeciesSpec prey, predator;
+    // La simulation du foyer, son terrain et ses comptes par bloc.
+    private final Simulator simulator;
+    private final Field focus;
+    private final DensityGrid focusDensity;
+    // Le nombre de cellules d'un bloc.
+    private final int cells;
+    // La probabilité qu'un animal d'un bloc passe dans un bloc voisin donné.
+    private final double crossing;
+    // L'âge auquel un renard devient adulte, et le nombre de catégories.
+    private final int youth, kinds;
+    // Les nombres d'animaux de chaque bloc hors du foyer, par catégorie,
+    // et ceux du pas suivant.
+    private int[][] counts, nextCounts;
+    // Le nombre d'animaux hors du foyer, par catégorie.
+    private final long[] totals;
+    // La valeur nutritive d'un lapin, et la probabilité qu'un lapin ait
+    // une portée à un pas, ses âges étant supposés uniformes.
+    private final int food;
+    private final double preyBreeding;
+    // Les probabilités des règles des blocs, selon le nombre d'animaux
+    // d'un bloc (voir tabulate) : voisinage plein, mort d'un lapin et
+    // d'un renard adulte, part libre du voisinage d'un lapin ; et selon
+    // le nombre de lapins : repas d'un renard, réserve entière sans
+    // repas, mort de faim à un pas.
+    private final double[] crowding, preyDying, predatorDying, preyRoom;
+    private final double[] eating, hunger, starvation;
+    // L'équilibre des lapins seuls dans un bloc, et l'écart toléré au repos.
+    private double restingRabbits, restingSpread;
+    // Les blocs calmes et les blocs au repos du pas courant (voir markResting).
+    private final boolean[] calm, resting;
+
+    /**
+     * Crée un monde peuplé avec les probabilités de Simulator.
+     * @param blockRows Le nombre de lignes de blocs du monde.
+     * @param blockCols Le nombre de colonnes de blocs du monde.
+     * @param blockSize Le côté d'un bloc, en cellules (au moins 2).
+     * @param focusRow La première ligne de blocs du foyer.
+     * @param focusCol La première colonne de blocs du foyer.
+     * @param focusRows Le nombre de lignes de blocs du foyer.
+     * @param focusCols Le nombre de colonnes de blocs du foyer.
+     */
+    public HybridWorld(int blockRows, int blockCols, int blockSize,
+                       int focusRow, int focusCol, int focusRows, int focusCols)
+    {
+        this(blockRows, blockCols, blockSize, focusRow, focusCol, focusRows, focusCols,
+             Simulator.FOX_CREATION_PROBABILITY, Simulator.RABBIT_CREATION_PROBABILITY);
+    }
+
+    /**
+     * Crée un monde peuplé selon des probabilités données.
+     * @param blockRows Le nombre de lignes de blocs du monde.
+     * @param blockCols Le nombre de colonnes de blocs du monde.
+     * @param blockSize Le côté d'un bloc, en cellules (au moins 2).
+     * @param focusRow La première ligne de blocs du foyer.
+     * @param focusCol La première colonne de blocs du foyer.
+     * @param focusRows Le nombre de lignes de blocs du foyer.
+     * @param focusCols Le nombre de colonnes de blocs du foyer.
+     * @param foxCreationProbability La probabilité qu'un renard soit créé à une position.
+     * @param rabbitCreationProbability La probabilité qu'un lapin soit créé à une position sans renard.
+     * @throws IllegalArgumentException Si les blocs ou le foyer sont invalides.
+     */
+    public HybridWorld(int blockRows, int blockCols, int blockSize,
+                       int focusRow, int focusCol, int focusRows, int focusCols,
+                       double foxCreationProbability, double rabbitCreationProbability)
+    {
+        if(blockRows <= 0 || blockCols <= 0 || blockSize < 2) {
+            throw new IllegalArgumentException("Blocs invalides : " + blockRows + " x " + blockCols
+                                               + " de côté " + blockSize);
+        }
+        if(focusRows <= 0 || focusCols <= 0 || focusRow < 0 || focusCol < 0
+           || focusRow + focusRows > blockRows || focusCol + focusCols > blockCols) {
+            throw new IllegalArgumentException("Foyer hors du monde : " + focusRows + " x " + focusCols
+                                               + " en (" + focusRow + ", " + focusCol + ")");
+        }
+        this.blockRows = blockRows;
+        this.blockCols = blockCols;
+        this.blockSize = blockSize;
+        this.focusRow = focusRow;
+        this.focusCol = focusCol;
+        this.focusRows = focusRows;
+        this.focusCols = focusCols;
+        this.foxCreationProbability = foxCreationProbability;
+        this.rabbitCreationProbability = rabbitCreationProbability;
+        prey = MeanFieldModel.rabbitSpec();
+        predator = MeanFieldModel.foxSpec();
+        cells = blockSize * blockSize;
+        // Une cellule sur blockSize est au bord d'un côté donné du bloc.
+        crossing = EDGE_CROSSING / blockSize;
+        youth = predator.getBreedingAge();
+        kinds = YOUNG_FOXES + youth;
+        counts = new int[kinds][blockRows * blockCols];
+        nextCounts = new int[kinds][blockRows * blockCols];
+        totals = new long[kinds];
+        food = predator.getFoodValue();
+        preyBreeding = prey.getBreedingProbability()
+                     * Math.max(prey.getMaxAge() - prey.getBreedingAge(), 0) / prey.getMaxAge();
+        crowding = new double[cells + 1];
+        preyDying = new double[cells + 1];
+        predatorDying = new double[cells + 1];
+        preyRoom = new double[cells + 1];
+        eating = new double[cells + 1];
+        hunger = new double[cells + 1];
+        starvation = new double[cells + 1];
+        calm = new boolean[blockRows * blockCols];
+        resting = new boolean[blockRows * blockCols];
+        tabulate();
+
+        focus = new Field(focusRows * blockSize, focusCols * blockSize);
+        simulator = new Simulator(focus, false, foxCreationProbability, rabbitCreationProbability);
+        focusDensity = new DensityGrid(focus, blockSize);
+        populateBlocks();
+    }
+
+    /**
+     * Exécute la simulation pour un nombre de pas donné.
+     * Arrête avant si elle n'est plus viable.
+     * @param numSteps Le nombre de pas à réaliser.
+     */
+    public void simulate(int numSteps)
+    {
+        for(int step = 1; step <= numSteps && isViable(); step++) {
+            simulateOneStep();
+        }
+    }
+
+    /**
+     * Exécute un pas : les animaux du foyer agissent, ceux du bord qui
+     * le quittent passent dans les blocs, puis les blocs évoluent et
+     * leurs animaux se dispersent, y compris vers le foyer.
+     */
+    public void simulateOneStep()
+    {
+        simulator.simulateOneStep();
+        emigrate();
+        updateBlocks();
+    }
+
+    /**
+     * Revient à un monde nouvellement peuplé.
+     */
+    public void reset()
+    {
+        simulator.reset();
+        populateBlocks();
+    }
+
+    /**
+     * @return true s'il reste des lapins et des renards.
+     */
+    public boolean isViable()
+    {
+        return getRabbitCount() > 0 && getFoxCount() > 0;
+    }
+
+    /**
+     * @return Le pas actuel de la simulation.
+     */
+    public int getStep()
+    {
+        return simulator.getStep();
+    }
+
+    /**
+     * @return Le nombre de lapins du monde.
+     */
+    public long getRabbitCount()
+    {
+        return totals[RABBITS] + focusDensity.getTotal(Species.RABBIT);
+    }
+
+    /**
+     * @return Le nombre de renards du monde.
+     */
+    public long getFoxCount()
+    {
+        long foxCount = focusDensity.getTotal(Species.FOX);
+        for(int kind = FOXES; kind < kinds; kind++) {
+            foxCount += totals[kind];
+        }
+        return foxCount;
+    }
+
+    /**
+     * @param blockRow La ligne du bloc.
+     * @param blockCol La colonne du bloc.
+     * @return Le nombre de lapins du bloc, dans le foyer ou non.
+     */
+    public int getRabbitCount(int blockRow, int blockCol)
+    {
+        if(isFocus(blockRow, blockCol)) {
+            return focusDensity.getBlockCount(Species.RABBIT, blockRow - focusRow, blockCol - focusCol);
+        }
+        return counts[RABBITS][blockRow * blockCols + blockCol];
+    }
+
+    /**
+     * @param blockRow La ligne du bloc.
+     * @param blockCol La colonne du bloc.
+     * @return Le nombre de renards du bloc, dans le foyer ou non.
+     */
+    public int getFoxCount(int blockRow, int blockCol)
+    {
+        if(isFocus(blockRow, blockCol)) {
+            return focusDensity.getBlockCount(Species.FOX, blockRow - focusRow, blockCol - focusCol);
+        }
+        return foxCount(blockRow * blockCols + blockCol);
+    }
+
+    /**
+     * @param blockRow La ligne du bloc.
+     * @param blockCol La colonne du bloc.
+     * @return true si le bloc fait partie du foyer.
+     */
+    public boolean isFocus(int blockRow, int blockCol)
+    {
+        return blockRow >= focusRow && blockRow < focusRow + focusRows
+            && blockCol >= focusCol && blockCol < focusCol + focusCols;
+    }
+
+    /**
+     * @return La simulation du foyer, par exemple pour l'observer.
+     */
+    public Simulator getSimulator()
+    {
+        return simulator;
+    }
+
+    /**
+     * @return Le nombre de lignes de blocs du monde.
+     */
+    public int getBlockRows()
+    {
+        return blockRows;
+    }
+
+    /**
+     * @return Le nombre de colonnes de blocs du monde.
+     */
+    public int getBlockCols()
+    {
+        return blockCols;
+    }
+
+    /**
+     * @return Le côté d'un bloc, en cellules.
+     */
+    public int getBlockSize()
+    {
+        return blockSize;
+    }
+
+    /**
+     * Peuple les blocs hors du foyer selon la loi du peuplement de
+     * Simulator : un renard par cellule avec sa probabilité, puis un
+     * lapin par cellule restante avec la sienne. Comme au peuplement,
+     * l'âge d'un renard est uniforme.
+     */
+    private void populateBlocks()
+    {
+        double age = 1.0 / predator.getMaxAge();
+        for(int kind = 0; kind < kinds; kind++) {
+            Arrays.fill(counts[kind], 0);
+        }
+        for(int blockRow = 0; blockRow < blockRows; blockRow++) {
+            for(int blockCol = 0; blockCol < blockCols; blockCol++) {
+                if(!isFocus(blockRow, blockCol)) {
+                    int block = blockRow * blockCols + blockCol;
+                    int foxCount = binomial(cells, foxCreationProbability);
+                    int adults = foxCount;
+                    // Les âges des jeunes, tirés l'un après l'autre parmi ceux qui restent.
+                    for(int kind = YOUNG_FOXES; kind < kinds; kind++) {
+                        counts[kind][block] = binomial(adults, age / (1 - (kind - YOUNG_FOXES) * age));
+                        adults -= counts[kind][block];
+                    }
+                    counts[FOXES][block] = adults;
+                    counts[RABBITS][block] = binomial(cells - foxCount, rabbitCreationProbability);
+                }
+            }
+        }
+        sumTotals();
+    }
+
+    /**
+     * Fait passer dans les blocs voisins les animaux du bord du foyer
+     * qui le franchissent. Seuls les renards et les lapins changent de
+     * représentation ; les autres espèces restent dans le foyer.
+     */
+    private void emigrate()
+    {
+        int depth = focus.getDepth();
+        int width = focus.getWidth();
+        for(int row = 0; row < depth; row++) {
+            // Toute la ligne sur les bords nord et sud, les deux extrémités ailleurs.
+            int step = row == 0 || row == depth - 1 ? 1 : Math.max(width - 1, 1);
+            for(int col = 0; col < width; col += step) {
+                Object animal = focus.getObjectAt(row, col);
+                if(animal instanceof Fox || animal instanceof Rabbit) {
+                    emigrate((Animal) animal, row, col);
+                }
+            }
+        }
+    }
+
+    /**
+     * Fait passer un animal du bord du foyer dans un bloc voisin, s'il
+     * franchit l'un des bords du foyer qui ne sont pas ceux du monde.
+     */
+    private void emigrate(Animal animal, int row, int col)
+    {
+        int lastRow = focus.getDepth() - 1;
+        int lastCol = focus.getWidth() - 1;
+        for(int side = 0; side < SIDE_ROWS.length; side++) {
+            boolean onEdge = side == 0 ? row == 0 : side == 1 ? row == lastRow
+                           : side == 2 ? col == 0 : col == lastCol;
+            int blockRow = focusRow + row / blockSize + SIDE_ROWS[side];
+            int blockCol = focusCol + col / blockSize + SIDE_COLS[side];
+            if(onEdge && inWorld(blockRow, blockCol) && rand.nextDouble() < EDGE_CROSSING) {
+                int kind = animal instanceof Rabbit ? RABBITS
+                         : animal.getAge() < youth ? YOUNG_FOXES + animal.getAge() : FOXES;
+                animal.setDead(LineageRecorder.EMIGRATED);
+                counts[kind][blockRow * blockCols + blockCol]++;
+                totals[kind]++;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Fait évoluer chaque bloc hors du foyer, puis disperse ses animaux.
+     * Les règles suivent celles des animaux : les renards mangent les
+     * lapins de leur voisinage, un jeune renard qui n'a pas mangé avant
+     * la fin de sa première réserve meurt de faim, un autre renard meurt
+     * au bout d'une suite de pas sans repas, tous meurent de vieillesse
+     * et quand leur voisinage est plein, et les adultes se reproduisent
+     * dans les cellules libres. Les blocs vides et les blocs au repos
+     * (voir markResting) ne font aucun tirage.
+     */
+    private void updateBlocks()
+    {
+        for(int kind = 0; kind < kinds; kind++) {
+            Arrays.fill(nextCounts[kind], 0);
+        }
+        markResting();
+        double foxBreeding = predator.getBreedingProbability();
+        for(int blockRow = 0; blockRow < blockRows; blockRow++) {
+            for(int blockCol = 0; blockCol < blockCols; blockCol++) {
+                int block = blockRow * blockCols + blockCol;
+                int rabbitCount = counts[RABBITS][block];
+                int foxCount = foxCount(block);
+                if(rabbitCount == 0 && foxCount == 0) {
+                    continue;
+                }
+                if(resting[block]) {
+                    nextCounts[RABBITS][block] += rabbitCount;
+                    continue;
+                }
+                int occupied = Math.min(rabbitCount + foxCount, cells);
+                int preyCount = Math.min(rabbitCount, cells);
+                double crowded = crowding[occupied];
+                double hungry = hunger[preyCount];
+                double starving = starvation[preyCount];
+                if(rabbitCount > 0) {
+                    rabbitCount -= Math.min(rabbitCount, binomial(foxCount, eating[preyCount]));
+                }
+                rabbitCount -= binomial(rabbitCount, preyDying[occupied]);
+                foxCount = 0;
+                // Les jeunes vieillissent d'un pas ; les plus âgés deviennent adultes.
+                for(int age = 0; age < youth; age++) {
+                    int young = counts[YOUNG_FOXES + age][block];
+                    if(young > 0) {
+                        if(age + 1 == food) {
+                            young -= binomial(young, hungry);
+                        }
+                        else if(age >= food) {
+                            young -= binomial(young, starving);
+                        }
+                        young -= binomial(young, crowded);
+                        foxCount += young;
+                        disperse(age + 1 < youth ? YOUNG_FOXES + age + 1 : FOXES, young, blockRow, blockCol);
+                    }
+                }
+                int adults = counts[FOXES][block];
+                adults -= binomial(adults, starving);
+                adults -= binomial(adults, predatorDying[occupied]);
+                foxCount += adults;
+
+                int free = Math.max(cells - rabbitCount - foxCount, 0);
+                int rabbitBirths = Math.min(litters(binomial(rabbitCount, preyBreeding), prey,
+                                                    preyRoom[cells - free]),
+                                            free);
+                int foxBirths = Math.min(litters(binomial(adults, foxBreeding), predator, (double) free / cells),
+                                         free - rabbitBirths);
+                disperse(RABBITS, rabbitCount + rabbitBirths, blockRow, blockCol);
+                disperse(FOXES, adults, blockRow, blockCol);
+                disperse(youth > 0 ? YOUNG_FOXES : FOXES, foxBirths, blockRow, blockCol);
+            }
+        }
+        int[][] swap = counts;
+        counts = nextCounts;
+        nextCounts = swap;
+        sumTotals();
+    }
+
+    /**
+     * Marque les blocs au repos pour le pas courant. Un bloc est calme
+     * s'il n'a aucun renard et que son nombre de lapins est à moins d'un
+     * écart type de l'équilibre des lapins seuls, où les naissances
+     * attendues compensent les morts ; il est au repos si ses voisins,
+     * hors du foyer, sont calmes aussi. Un bloc au repos garde ses
+     * lapins sans tirage, et les lapins qui y entreraient restent dans
+     * leur bloc : entre blocs à l'équilibre, les échanges se compensent
+     * en moyenne. Seules les fluctuations autour de l'équilibre sont
+     * perdues, jusqu'à ce qu'un renard approche.
+     */
+    private void markResting()
+    {
+        for(int block = 0; block < calm.length; block++) {
+            calm[block] = foxCount(block) == 0
+                       && Math.abs(counts[RABBITS][block] - restingRabbits) <= restingSpread;
+        }
+        for(int blockRow = 0; blockRow < blockRows; blockRow++) {
+            for(int blockCol = 0; blockCol < blockCols; blockCol++) {
+                int block = blockRow * blockCols + blockCol;
+                boolean rests = calm[block] && !isFocus(blockRow, blockCol);
+                for(int side = 0; side < SIDE_ROWS.length && rests; side++) {
+                    int row = blockRow + SIDE_ROWS[side];
+                    int col = blockCol + SIDE_COLS[side];
+                    rests = !inWorld(row, col) || !isFocus(row, col) && calm[row * blockCols + col];
+                }
+                resting[block] = rests;
+            }
+        }
+    }
+
+    /**
+     * Calcule les probabilités des règles des blocs pour chaque nombre
+     * d'animaux d'un bloc, une fois pour toutes : un pas ne fait plus que
+     * des lectures de tables. Calcule aussi l'équilibre des lapins seuls
+     * (voir markResting).
+     */
+    private void tabulate()
+    {
+        double preyDeath = 1.0 / prey.getMaxAge();
+        double predatorDeath = 1.0 / Math.max(predator.getMaxAge() - youth, 1);
+        double mixing = NEIGHBOURS * BLOCK_MIXING;
+        for(int count = 0; count <= cells; count++) {
+            double share = (double) count / cells;
+            double preyShare = Math.min(PREY_CLUSTERING * share, 1);
+            // La probabilité qu'aucun des voisins d'une cellule ne soit libre.
+            crowding[count] = Math.pow(share, NEIGHBOURS);
+            double preyCrowded = Math.pow(preyShare, NEIGHBOURS);
+            preyDying[count] = preyDeath + preyCrowded - preyDeath * preyCrowded;
+            predatorDying[count] = predatorDeath + crowding[count] - predatorDeath * crowding[count];
+            preyRoom[count] = 1 - preyShare;
+            // Ici, count est le nombre de lapins du bloc.
+            double eats = count > 0 ? 1 - Math.pow(1 - share, mixing) : 0;
+            eating[count] = eats;
+            // La probabilité de passer la durée d'une réserve sans manger, et
+            // celle de mourir de faim à un pas : une telle suite arrive en
+            // (1 - hungry) / (eats * hungry) pas en moyenne.
+            hunger[count] = Math.pow(1 - eats, food);
+            starvation[count] = eats > 0 ? eats * hunger[count] / (1 - hunger[count]) : 1.0 / food;
+        }
+        // Le plus petit nombre de lapins seuls qui ne croît plus en moyenne.
+        double litter = (prey.getMaxLitterSize() + 1) / 2.0;
+        int equilibrium = cells;
+        for(int count = 1; count < cells; count++) {
+            double survivors = count * (1 - preyDying[count]);
+            double births = survivors * preyBreeding * litter * preyRoom[(int) Math.round(survivors)];
+            if(survivors + Math.min(births, cells - survivors) <= count) {
+                equilibrium = count;
+                break;
+            }
+        }
+        restingRabbits = equilibrium;
+        restingSpread = Math.sqrt(equilibrium);
+    }
+
+    /**
+     * @return Le nombre de renards d'un bloc hors du foyer, tous âges confondus.
+     */
+    private int foxCount(int block)
+    {
+        int foxCount = 0;
+        for(int kind = FOXES; kind < kinds; kind++) {
+            foxCount += counts[kind][block];
+        }
+        return foxCount;
+    }
+
+    /**
+     * Recompte le nombre d'animaux hors du foyer, par catégorie.
+     */
+    private void sumTotals()
+    {
+        for(int kind = 0; kind < kinds; kind++) {
+            long total = 0;
+            for(int count : counts[kind]) {
+                total += count;
+            }
+            totals[kind] = total;
+        }
+    }
+
+    /**
+     * Répartit les animaux d'un bloc entre le bloc et ses voisins : un
+     * tirage donne le nombre d'animaux qui partent, puis une loi
+     * multinomiale les répartit entre les quatre côtés, en un tirage
+     * binomial par côté. Les animaux qui sortiraient du monde, ou
+     * entreraient dans un bloc au repos, restent dans leur bloc.
+     */
+    private void disperse(int kind, int count, int blockRow, int blockCol)
+    {
+        int[] next = nextCounts[kind];
+        int leaving = binomial(count, SIDE_ROWS.length * crossing);
+        int staying = count - leaving;
+        for(int side = 0; side < SIDE_ROWS.length && leaving > 0; side++) {
+            // Chaque animal qui part choisit un des côtés restants au hasard.
+            int moving = binomial(leaving, 1.0 / (SIDE_ROWS.length - side));
+            leaving -= moving;
+            int row = blockRow + SIDE_ROWS[side];
+            int col = blockCol + SIDE_COLS[side];
+            if(moving == 0) {
+                continue;
+            }
+            if(!inWorld(row, col)) {
+                staying += moving;
+            }
+            else if(isFocus(row, col)) {
+                staying += immigrate(kind, moving, row, col, side);
+            }
+            else if(resting[row * blockCols + col]) {
+                staying += moving;
+            }
+            else {
+                next[row * blockCols + col] += moving;
+            }
+        }
+        next[blockRow * blockCols + blockCol] += staying;
+    }
+
+    /**
+     * Crée dans le foyer des animaux venus d'un bloc voisin, sur des
+     * cellules libres du bord par lequel ils entrent.
+     * @param kind La catégorie des animaux.
+     * @param count Le nombre d'animaux.
+     * @param blockRow La ligne du bloc du foyer où ils entrent.
+     * @param blockCol La colonne du bloc du foyer où ils entrent.
+     * @param side Le côté vers lequel ils se déplacent.
+     * @return Le nombre d'animaux qui n'ont pas trouvé de place.
+     */
+    private int immigrate(int kind, int count, int blockRow, int blockCol, int side)
+    {
+        int top = (blockRow - focusRow) * blockSize;
+        int left = (blockCol - focusCol) * blockSize;
+        int unplaced = 0;
+        for(int i = 0; i < count; i++) {
+            Location location = null;
+            for(int tries = 0; tries < PLACEMENT_TRIES && location == null; tries++) {
+                int offset = rand.nextInt(blockSize);
+                // Vers le nord, on entre par le bord sud du bloc, et ainsi de suite.
+                int row = side == 0 ? top + blockSize - 1 : side == 1 ? top : top + offset;
+                int col = side == 2 ? left + blockSize - 1 : side == 3 ? left : left + offset;
+                if(focus.getObjectAt(row, col) == null) {
+                    location = new Location(row, col);
+                }
+            }
+            if(location == null) {
+                unplaced++;
+            }
+            else if(kind == RABBITS) {
+                simulator.addAnimal(new Rabbit(true, focus, location, simulator.getLifecycle()));
+            }
+            else if(kind == FOXES) {
+                simulator.addAnimal(new Fox(true, focus, location, simulator.getLifecycle()));
+            }
+            else {
+                simulator.addAnimal(youngFox(kind - YOUNG_FOXES, location));
+            }
+        }
+        return unplaced;
+    }
+
+    /**
+     * Crée un jeune renard d'un âge donné. Avant la fin de sa première
+     * réserve, il n'a pas encore mangé ; après, sa réserve est tirée au
+     * hasard comme au peuplement.
+     */
+    private Fox youngFox(int age, Location location)
+    {
+        Fox fox = new Fox(false, focus, location, simulator.getLifecycle());
+        if(age > 0) {
+            fox.setAge(age);
+            fox.scheduleDeath(fox.getStep() + (age < food ? food - age : 1 + rand.nextInt(food)));
+        }
+        return fox;
+    }
+
+    /**
+     * Tire le nombre de petits de plusieurs portées, chaque petit ne
+     * naissant que s'il trouve une cellule libre.
+     */
+    private int litters(int count, SpeciesSpec spec, double freeShare)
+    {
+        int maxLitter = spec.getMaxLitterSize();
+        // Une portée compte en moyenne (maxLitter + 1) / 2 petits.
+        return binomial(count * maxLitter, (maxLitter + 1) / (2.0 * maxLitter) * freeShare);
+    }
+
+    private boolean inWorld(int blockRow, int blockCol)
+    {
+        return blockRow >= 0 && blockRow < blockRows && blockCol >= 0 && blockCol < blockCols;
+    }
+
+    /**
+     * Tire un nombre de succès parmi n essais de probabilité p. Un grand
+     * nombre suit la loi normale ; un petit est tiré par inversion de la
+     * loi binomiale, en un seul tirage uniforme.
+     */
+    private static int binomial(int n, double p)
+    {
+        if(n <= 0 || p <= 0) {
+            return 0;
+        }
+        if(p >= 1) {
+            return n;
+        }
+        if(p > 0.5) {
+            return n - binomial(n, 1 - p);
+        }
+        double mean = n * p;
+        double variance = mean * (1 - p);
+        if(variance >= NORMAL_VARIANCE) {
+            long successes = Math.round(mean + Math.sqrt(variance) * rand.nextGaussian());
+            return (int) Math.max(0, Math.min(n, successes));
+        }
+        // La probabilité de chaque nombre de succès découle de la précédente.
+        double odds = p / (1 - p);
+        double probability = Math.exp(n * Math.log1p(-p));
+        double draw = rand.nextDouble();
+        int successes = 0;
+        while(draw > probability && successes < n) {
+            draw -= probability;
+            probability *= odds * (n - successes) / (successes + 1);
+            successes++;
+        }
+        return successes;
+    }
+}
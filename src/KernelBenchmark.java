@@ -0,0 +1,95 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compare les boucles scalaires et SWAR de CellKernels sur un tableau
+ * de codes d'espèce, pour plusieurs densités d'occupation. Les
+ * résultats des deux versions sont vérifiés avant la mesure.
+ *
+ * Usage : java KernelBenchmark [cellules] [répétitions]
+ *
+ * @author Filipe Dias Morais
+ * @version 2026.10.19
+ */
+public class KernelBenchmark
+{
+    // Les densités d'occupation mesurées.
+    private static final double[] DENSITIES = { 0.01, 0.10, 0.50 };
+
+    public static void main(String[] args)
+    {
+        int cells = args.length > 0 ? Integer.parseInt(args[0]) : 16_000_000;
+        int repeats = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        ByteBuffer codes = ByteBuffer.allocateDirect(cells).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer scratch = ByteBuffer.allocateDirect(cells).order(ByteOrder.LITTLE_ENDIAN);
+        long[] mask = new long[(cells + 63) / 64];
+        int species = Species.count();
+        Random rand = new Random(42);
+
+        System.out.printf("%d cellules, %d répétitions (ns par cellule)%n", cells, repeats);
+        System.out.printf("%-8s %-9s %10s %10s %8s%n", "densité", "boucle", "scalaire", "swar", "gain");
+        for(double density : DENSITIES) {
+            for(int i = 0; i < cells; i++) {
+                double draw = rand.nextDouble();
+                codes.put(i, (byte) (draw < density * 0.2 ? Species.FOX
+                                     : draw < density ? Species.RABBIT : Species.EMPTY));
+            }
+            check(codes, cells, species, mask);
+
+            double scalarCount = time(repeats, cells, () -> CellKernels.scalar().count(codes, 0, cells, species, new int[Species.MAX_CODES]));
+            double swarCount = time(repeats, cells, () -> CellKernels.swar().count(codes, 0, cells, species, new int[Species.MAX_CODES]));
+            print(density, "count", scalarCount, swarCount);
+
+            double scalarMask = time(repeats, cells, () -> CellKernels.scalar().freeMask(codes, 0, cells, mask));
+            double swarMask = time(repeats, cells, () -> CellKernels.swar().freeMask(codes, 0, cells, mask));
+            print(density, "freeMask", scalarMask, swarMask);
+
+            double scalarClear = time(repeats, cells, () -> CellKernels.scalar().clear(scratch, 0, cells));
+            double swarClear = time(repeats, cells, () -> CellKernels.swar().clear(scratch, 0, cells));
+            print(density, "clear", scalarClear, swarClear);
+        }
+    }
+
+    /**
+     * Vérifie que les deux versions donnent les mêmes résultats, sur
+     * des plages non alignées.
+     */
+    private static void check(ByteBuffer codes, int cells, int species, long[] mask)
+    {
+        int from = 3;
+        int to = cells - 5;
+        int[] scalarCounts = new int[Species.MAX_CODES];
+        int[] swarCounts = new int[Species.MAX_CODES];
+        CellKernels.scalar().count(codes, from, to, species, scalarCounts);
+        CellKernels.swar().count(codes, from, to, species, swarCounts);
+        long[] swarMask = new long[mask.length];
+        CellKernels.scalar().freeMask(codes, from, to, mask);
+        CellKernels.swar().freeMask(codes, from, to, swarMask);
+        if(!Arrays.equals(scalarCounts, swarCounts) || !Arrays.equals(mask, swarMask)) {
+            throw new IllegalStateException("Les boucles scalaires et SWAR diffèrent");
+        }
+    }
+
+    /**
+     * Mesure la durée moyenne d'une boucle, après une mise en température.
+     * @return La durée par cellule, en nanosecondes.
+     */
+    private static double time(int repeats, int cells, Runnable kernel)
+    {
+        for(int i = 0; i < repeats; i++) {
+            kernel.run();
+        }
+        long start = System.nanoTime();
+        for(int i = 0; i < repeats; i++) {
+            kernel.run();
+        }
+        return (System.nanoTime() - start) / (double) repeats / cells;
+    }
+
+    private static void print(double density, String kernel, double scalar, double swar)
+    {
+        System.out.printf("%-8.2f %-9s %10.3f %10.3f %7.1fx%n", density, kernel, scalar, swar, scalar / swar);
+    }
+}
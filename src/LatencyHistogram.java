@@ -0,0 +1,117 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Un histogramme de durées, à classes logarithmiques (8 classes par
+ * puissance de deux, soit une précision d'environ 12 %). Un seul fil
+ * enregistre les durées ; d'autres fils peuvent lire les centiles à
+ * tout moment sans verrou.
+ *
+ * @author Filipe Dias Morais
+ * @version 2026.10.19
+ */
+public class LatencyHistogram
+{
+    // Nombre de bits de sous-classe par puissance de deux.
+    private static final int SUB_BITS = 3;
+    // Nombre de sous-classes par puissance de deux.
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    // Nombre total de classes, pour des durées jusqu'à Long.MAX_VALUE.
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_BUCKETS;
+
+    // Le nombre de durées dans chaque classe.
+    private final AtomicLongArray counts;
+
+    /**
+     * Crée un histogramme vide.
+     */
+    public LatencyHistogram()
+    {
+        counts = new AtomicLongArray(BUCKETS);
+    }
+
+    /**
+     * Enregistre une durée.
+     * @param nanos La durée, en nanosecondes.
+     */
+    public void record(long nanos)
+    {
+        counts.incrementAndGet(bucketOf(Math.max(nanos, 0)));
+    }
+
+    /**
+     * @return Le nombre de durées enregistrées.
+     */
+    public long getCount()
+    {
+        long total = 0;
+        for(int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Renvoie un centile des durées enregistrées.
+     * @param percentile Le centile voulu, entre 0 et 100.
+     * @return La borne supérieure de la classe du centile, en
+     *         nanosecondes, 0 si aucune durée n'est enregistrée.
+     */
+    public long getPercentile(double percentile)
+    {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for(int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if(total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile / 100.0 * total);
+        long seen = 0;
+        for(int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if(seen >= rank && snapshot[i] > 0) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(BUCKETS - 1);
+    }
+
+    /**
+     * Oublie toutes les durées enregistrées.
+     */
+    public void reset()
+    {
+        for(int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    /**
+     * Calcule la classe d'une durée.
+     */
+    private static int bucketOf(long value)
+    {
+        if(value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Calcule la plus grande durée d'une classe.
+     */
+    private static long upperBound(int bucket)
+    {
+        if(bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        long upper = ((SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS)) - 1;
+        return upper < 0 ? Long.MAX_VALUE : upper;
+    }
+}
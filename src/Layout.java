@@ -0,0 +1,161 @@
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Une disposition de départ des renards et des lapins sur un terrain,
+ * utilisée par Simulator à la place de son peuplement uniforme (voir
+ * ScenarioLibrary pour les dispositions disponibles).
+ *
+ * Une disposition est générée à chaque peuplement, avec le générateur
+ * de la simulation : pour une même base et une même taille de terrain,
+ * elle est identique d'une exécution à l'autre. Les dispositions
+ * décrites par des densités (uniform, front, near-full, sparse) gardent
+ * le même aspect sur un terrain de toute taille ; celles qui tirent des
+ * positions de groupes (herds, post-crash) les placent autrement dès
+ * que la taille change.
+ *
+ * Une disposition ne garde aucun état : chaque peuplement passe par
+ * son propre Placement, si bien qu'une même disposition peut peupler
+ * plusieurs terrains à la fois. Les sous-classes ne décrivent que les
+ * cellules à peupler ; les cellules laissées vides ne sont pas
+ * parcourues quand elles utilisent scatter, si bien qu'un terrain
+ * clairsemé se charge en un temps proportionnel au nombre de ses
+ * animaux.
+ *
+ * @author Filipe Dias Morais
+ * @version 2026.10.19
+ */
+public abstract class Layout
+{
+    // Le nom de la disposition.
+    private final String name;
+
+    /**
+     * @param name Le nom de la disposition.
+     */
+    protected Layout(String name)
+    {
+        this.name = name;
+    }
+
+    /**
+     * @return Le nom de la disposition.
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Peuple un terrain selon cette disposition. Les animaux sont créés
+     * avec un âge et une réserve au hasard, comme au peuplement de
+     * Simulator.
+     * @param field Le terrain, vide.
+     * @param lifecycle L'horloge de la simulation.
+     * @param animals La liste à laquelle ajouter les animaux créés.
+     * @param rand Le générateur aléatoire de la simulation.
+     */
+    public void populate(Field field, Lifecycle lifecycle, List<Animal> animals, Random rand)
+    {
+        generate(new Placement(field, lifecycle, animals, rand), field.getDepth(), field.getWidth());
+    }
+
+    public String toString()
+    {
+        return name;
+    }
+
+    /**
+     * Décrit les cellules à peupler, par Placement.place ou
+     * Placement.scatter.
+     * @param placement Le peuplement en cours.
+     * @param depth La profondeur du terrain.
+     * @param width La largeur du terrain.
+     */
+    protected abstract void generate(Placement placement, int depth, int width);
+
+    /**
+     * Tire la longueur d'un saut géométrique, pour Placement.scatter et
+     * Simulator.populate.
+     * @param rand Le générateur aléatoire de la simulation.
+     * @param failure Le logarithme de la probabilité qu'une cellule ne
+     *                soit pas tirée.
+     * @return Le nombre de cellules passées avant la prochaine cellule tirée.
+     */
+    static long skip(Random rand, double failure)
+    {
+        // Une probabilité de 1 donne un logarithme infini : aucune cellule n'est passée.
+        return failure == Double.NEGATIVE_INFINITY ? 0 : (long) (Math.log(1 - rand.nextDouble()) / failure);
+    }
+
+    /**
+     * Un peuplement en cours : le terrain, son horloge, la liste de ses
+     * animaux et le générateur aléatoire de la simulation.
+     */
+    public static final class Placement
+    {
+        private final Field field;
+        private final Lifecycle lifecycle;
+        private final List<Animal> animals;
+        private final Random rand;
+
+        private Placement(Field field, Lifecycle lifecycle, List<Animal> animals, Random rand)
+        {
+            this.field = field;
+            this.lifecycle = lifecycle;
+            this.animals = animals;
+            this.rand = rand;
+        }
+
+        /**
+         * @return Le générateur aléatoire du peuplement.
+         */
+        public Random getRandom()
+        {
+            return rand;
+        }
+
+        /**
+         * Crée un animal dans une cellule, si elle est sur le terrain et libre.
+         * @param code Species.RABBIT ou Species.FOX.
+         * @param row La ligne de la cellule.
+         * @param col La colonne de la cellule.
+         * @return true si l'animal a été créé.
+         */
+        public boolean place(int code, int row, int col)
+        {
+            if(row < 0 || row >= field.getDepth() || col < 0 || col >= field.getWidth()
+               || field.getObjectAt(row, col) != null) {
+                return false;
+            }
+            Location location = new Location(row, col);
+            animals.add(code == Species.FOX ? new Fox(true, field, location, lifecycle)
+                                                   : new Rabbit(true, field, location, lifecycle));
+            return true;
+        }
+
+        /**
+         * Peuple chaque cellule libre d'un rectangle avec une probabilité
+         * donnée. Les cellules tirées sont atteintes par des sauts de
+         * longueur géométrique, sans parcourir les autres.
+         * @param code Species.RABBIT ou Species.FOX.
+         * @param probability La probabilité de peupler une cellule.
+         * @param fromRow Première ligne, incluse.
+         * @param fromCol Première colonne, incluse.
+         * @param toRow Dernière ligne, exclue.
+         * @param toCol Dernière colonne, exclue.
+         */
+        public void scatter(int code, double probability, int fromRow, int fromCol, int toRow, int toCol)
+        {
+            int width = toCol - fromCol;
+            long cells = (long) (toRow - fromRow) * width;
+            if(probability <= 0 || width <= 0 || cells <= 0) {
+                return;
+            }
+            double failure = Math.log1p(-Math.min(probability, 1));
+            for(long cell = skip(rand, failure); cell < cells; cell += 1 + skip(rand, failure)) {
+                place(code, fromRow + (int) (cell / width), fromCol + (int) (cell % width));
+            }
+        }
+    }
+}
@@ -0,0 +1,262 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * L'horloge de la vie des animaux d'une simulation. Les échéances de
+ * mort (vieillesse, faim) sont calculées une fois, à la naissance ou au
+ * repas, et rangées dans une roue temporelle. À chaque pas, seuls les
+ * animaux arrivés à échéance sont traités, par lot.
+ *
+ * Un animal n'a qu'une échéance dans la roue : la programmer à nouveau
+ * remplace la précédente, et sa mort l'annule, si bien qu'un animal
+ * mangé ou mort de surpeuplement n'est plus retenu par l'horloge.
+ *
+ * L'horloge appartient à la simulation (voir Simulator) ; chaque animal
+ * garde la sienne. Elle tient aussi le registre où sont notées les vies
+ * des animaux, s'il y en a un (voir LineageRecorder).
+ *
+ * Au branchement d'une simulation (voir CowField), chaque branche prend
+ * une copie de l'horloge. Ses échéances désignent d'abord les animaux
+ * figés au branchement ; elles passent à leurs copies à mesure que le
+ * terrain de la branche les copie, et un animal figé arrivé à échéance
+ * est d'abord copié.
+ *
+ * Lorsque les animaux agissent en parallèle (voir beginParallel), chaque
+ * fil note ses échéances dans son propre tampon, sans verrou ; elles
+ * sont appliquées à la roue à la fin de la phase.
+ *
+ * @author Filipe Dias Morais
+ * @version 2026.10.19
+ */
+public class Lifecycle
+{
+    // Les animaux programmés, par pas d'échéance.
+    private final TimingWheel<Animal> deadlines;
+    // Les animaux échus au pas courant.
+    private final List<Animal> expired;
+    // Le registre des vies des animaux, null s'ils ne sont pas enregistrés.
+    private LineageRecorder lineageRecorder;
+    // Le terrain de la branche, qui copie les animaux figés ; null hors des branches.
+    private CowField field;
+    // Vrai pendant une phase parallèle, où les échéances sont différées.
+    private boolean deferring;
+    // Le tampon des échéances différées de chaque fil.
+    private final ThreadLocal<Deferred> deferred = ThreadLocal.withInitial(this::newDeferred);
+    // Tous les tampons créés, dans l'ordre de leur création.
+    private final List<Deferred> buffers = new ArrayList<Deferred>();
+
+    /**
+     * Crée une horloge au pas 0.
+     */
+    public Lifecycle()
+    {
+        deadlines = new TimingWheel<Animal>();
+        expired = new ArrayList<Animal>();
+    }
+
+    /**
+     * Crée l'horloge d'une branche, avec les échéances d'une autre.
+     */
+    private Lifecycle(Lifecycle origin, CowField field)
+    {
+        deadlines = new TimingWheel<Animal>(origin.deadlines);
+        expired = new ArrayList<Animal>();
+        this.field = field;
+    }
+
+    /**
+     * Crée l'horloge d'une branche au pas courant, sans registre des
+     * lignées. Ses échéances sont celles de cette horloge : elles
+     * désignent les animaux figés au branchement, jusqu'à ce que le
+     * terrain de la branche les copie (voir adopt).
+     * @param field Le terrain de la branche.
+     * @return L'horloge de la branche.
+     */
+    public Lifecycle fork(CowField field)
+    {
+        return new Lifecycle(this, field);
+    }
+
+    /**
+     * Reporte l'échéance d'un animal figé sur sa copie dans la branche,
+     * ou la programme si l'horloge ne la connaît pas.
+     * @param original L'animal figé au branchement.
+     * @param copy Sa copie, sur cette horloge.
+     * @param step Le pas de l'échéance.
+     */
+    public void adopt(Animal original, Animal copy, int step)
+    {
+        if(deadlines.replace(original.deadlineEntry, original, copy)) {
+            copy.deadlineEntry = original.deadlineEntry;
+        }
+        else {
+            schedule(copy, step);
+        }
+    }
+
+    /**
+     * @return Le pas courant.
+     */
+    public int getStep()
+    {
+        return deadlines.getTime();
+    }
+
+    /**
+     * Programme l'échéance d'un animal, à la place de la précédente.
+     * Pendant une phase parallèle, elle est notée dans le tampon du fil
+     * appelant.
+     * @param animal L'animal concerné.
+     * @param step Le pas de l'échéance.
+     */
+    public void schedule(Animal animal, int step)
+    {
+        if(deferring) {
+            deferred.get().add(animal, step);
+            return;
+        }
+        deadlines.cancel(animal.deadlineEntry, animal);
+        animal.deadlineEntry = deadlines.schedule(animal, step);
+    }
+
+    /**
+     * Annule l'échéance d'un animal mort avant celle-ci. Pendant une
+     * phase parallèle, l'annulation est notée dans le tampon du fil
+     * appelant.
+     * @param animal L'animal concerné.
+     */
+    public void cancel(Animal animal)
+    {
+        if(deferring) {
+            deferred.get().add(animal, Deferred.CANCEL);
+            return;
+        }
+        deadlines.cancel(animal.deadlineEntry, animal);
+        animal.deadlineEntry = -1;
+    }
+
+    /**
+     * Ouvre une phase où plusieurs fils programment et annulent des
+     * échéances. À appeler depuis le fil de la simulation, avant de
+     * lancer les autres fils.
+     */
+    public void beginParallel()
+    {
+        deferring = true;
+    }
+
+    /**
+     * Ferme la phase parallèle et applique les échéances notées, tampon
+     * par tampon. Un animal ne programme ses échéances que depuis le fil
+     * où il agit, mais il peut être mangé depuis un autre fil : une
+     * échéance n'est appliquée que si l'animal est encore vivant, si
+     * bien que l'ordre des tampons n'importe pas. À appeler une fois les
+     * autres fils terminés.
+     */
+    public synchronized void endParallel()
+    {
+        deferring = false;
+        for(Deferred buffer : buffers) {
+            for(int i = 0; i < buffer.size; i++) {
+                Animal animal = buffer.animals[i];
+                deadlines.cancel(animal.deadlineEntry, animal);
+                animal.deadlineEntry = -1;
+                if(buffer.steps[i] != Deferred.CANCEL && animal.isAlive()) {
+                    animal.deadlineEntry = deadlines.schedule(animal, buffer.steps[i]);
+                }
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Passe au pas suivant et fait mourir les animaux arrivés à échéance.
+     */
+    public void advance()
+    {
+        deadlines.advance(expired);
+        int step = getStep();
+        for(Animal animal : expired) {
+            if(animal.getLifecycle() == this) {
+                animal.deadlineEntry = -1;
+                animal.expire(step);
+            }
+            else if(field != null) {
+                // Un animal figé au branchement : c'est sa copie qui meurt.
+                Animal copy = field.own(animal);
+                if(copy != null) {
+                    copy.expire(step);
+                }
+            }
+        }
+        expired.clear();
+    }
+
+    /**
+     * Oublie toutes les échéances et revient au pas 0.
+     */
+    public void reset()
+    {
+        deadlines.clear();
+    }
+
+    /**
+     * @return Le registre des vies des animaux, null s'il n'y en a pas.
+     */
+    public LineageRecorder getLineageRecorder()
+    {
+        return lineageRecorder;
+    }
+
+    /**
+     * Fixe le registre où sont enregistrées les vies des animaux qui
+     * naîtront (voir Simulator.recordLineage).
+     * @param recorder Le registre, null pour ne plus enregistrer.
+     */
+    public void setLineageRecorder(LineageRecorder recorder)
+    {
+        lineageRecorder = recorder;
+    }
+
+    /**
+     * Crée le tampon du fil appelant et le retient pour endParallel.
+     */
+    private synchronized Deferred newDeferred()
+    {
+        Deferred buffer = new Deferred();
+        buffers.add(buffer);
+        return buffer;
+    }
+
+    /**
+     * Les échéances notées par un fil pendant une phase parallèle, dans
+     * l'ordre où elles ont été programmées ou annulées.
+     */
+    private static class Deferred
+    {
+        // Le pas noté pour une annulation.
+        private static final int CANCEL = Integer.MIN_VALUE;
+
+        private Animal[] animals = new Animal[64];
+        private int[] steps = new int[64];
+        private int size;
+
+        private void add(Animal animal, int step)
+        {
+            if(size == animals.length) {
+                animals = Arrays.copyOf(animals, size * 2);
+                steps = Arrays.copyOf(steps, size * 2);
+            }
+            animals[size] = animal;
+            steps[size] = step;
+            size++;
+        }
+
+        private void clear()
+        {
+            Arrays.fill(animals, 0, size, null);
+            size = 0;
+        }
+    }
+}
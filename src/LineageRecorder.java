@@ -0,0 +1,346 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Un registre des lignées : une fiche de taille fixe par animal, dans
+ * un fichier projeté en mémoire, hors du tas Java. La fiche est ajoutée
+ * à la naissance de l'animal (voir Simulator.recordLineage), puis
+ * complétée sur place à chaque proie mangée et à sa mort ; aucun objet
+ * n'est créé par fiche.
+ *
+ * Format du fichier : des fiches de RECORD_BYTES octets, petit-boutistes.
+ * La première est l'en-tête (MAGIC, VERSION, nombre de fiches, en-tête
+ * compris, taille de la table des espèces) ; la fiche de numéro n suit,
+ * à la position n. Une fiche contient, dans l'ordre : le numéro de
+ * l'animal (long), celui de son parent (long, 0 sans parent enregistré),
+ * le pas de sa naissance (int), celui de sa mort (int, ALIVE s'il vit
+ * encore), le nombre de ses proies (int), son code d'espèce (octet), la
+ * cause de sa mort (octet) et deux octets réservés.
+ *
+ * Les codes d'espèce sont attribués à l'exécution (voir Species) : à la
+ * fermeture, la table des noms des espèces suit les fiches, afin que le
+ * registre se lise dans un autre processus (voir speciesNames). Pour
+ * chaque espèce : son code (octet), la longueur de son nom (short) et
+ * son nom en UTF-8.
+ *
+ * Le fichier est projeté par segments, ajoutés à mesure qu'il grandit ;
+ * les numéros sont attribués atomiquement, si bien que des animaux
+ * peuvent naître en parallèle (voir ConcurrentField). Les branches d'une
+ * simulation (voir Simulator.fork) ne sont pas enregistrées.
+ *
+ * @author Filipe Dias Morais
+ * @version 2026.10.19
+ */
+public class LineageRecorder implements Closeable
+{
+    // Identifie un registre des lignées ("LNGE").
+    public static final int MAGIC = 0x4C4E4745;
+    // Version du format ; la version 1 n'a pas de table des espèces.
+    public static final int VERSION = 2;
+    // La taille d'une fiche, en octets.
+    public static final int RECORD_BYTES = 32;
+    // Le pas de mort d'un animal encore en vie.
+    public static final int ALIVE = -1;
+
+    // Les causes de mort.
+    public static final int NONE = 0;
+    public static final int OLD_AGE = 1;
+    public static final int STARVATION = 2;
+    public static final int EATEN = 3;
+    public static final int OVERCROWDING = 4;
+    // L'animal a quitté le terrain (voir HybridWorld).
+    public static final int EMIGRATED = 5;
+
+    // La position des champs dans une fiche.
+    private static final int ID = 0;
+    private static final int PARENT = 8;
+    private static final int BIRTH = 16;
+    private static final int DEATH = 20;
+    private static final int KILLS = 24;
+    private static final int SPECIES = 28;
+    private static final int CAUSE = 29;
+    // La position du nombre de fiches et de la taille de la table des espèces dans l'en-tête.
+    private static final int COUNT = 8;
+    private static final int NAMES = 16;
+    // Le nombre de fiches d'un segment à l'écriture (32 Mio), puis à la lecture (1 Gio).
+    private static final int SEGMENT_RECORDS = 1 << 20;
+    private static final int SCAN_RECORDS = 1 << 25;
+
+    // Le fichier du registre.
+    private final FileChannel channel;
+    // Les segments projetés, remplacés par un tableau plus grand quand le registre grandit.
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[16];
+    // Le numéro de la prochaine fiche ; la fiche 0 est l'en-tête.
+    private final AtomicLong next = new AtomicLong(1);
+
+    /**
+     * Crée un registre vide dans un fichier, remplacé s'il existe.
+     * @param file Le fichier du registre.
+     * @throws IOException Si le fichier ne peut pas être créé.
+     */
+    public LineageRecorder(Path file) throws IOException
+    {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                                   StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer header = segment(0);
+        header.putInt(0, MAGIC);
+        header.putInt(4, VERSION);
+        header.putLong(COUNT, 1);
+    }
+
+    /**
+     * Ajoute la fiche d'un animal qui naît.
+     * @param species Son code d'espèce.
+     * @param parent Le numéro de son parent, 0 s'il n'en a pas.
+     * @param birth Le pas de sa naissance.
+     * @return Le numéro de l'animal.
+     */
+    public long born(int species, long parent, int birth)
+    {
+        long id = next.getAndIncrement();
+        MappedByteBuffer segment = segment(id);
+        int offset = offset(id);
+        segment.putLong(offset + ID, id);
+        segment.putLong(offset + PARENT, parent);
+        segment.putInt(offset + BIRTH, birth);
+        segment.putInt(offset + DEATH, ALIVE);
+        segment.putInt(offset + KILLS, 0);
+        segment.put(offset + SPECIES, (byte) species);
+        segment.put(offset + CAUSE, (byte) NONE);
+        return id;
+    }
+
+    /**
+     * Corrige le pas de naissance d'un animal, par exemple créé avec un
+     * âge au hasard au peuplement.
+     */
+    public void setBirth(long id, int birth)
+    {
+        segment(id).putInt(offset(id) + BIRTH, birth);
+    }
+
+    /**
+     * Note le parent d'un animal.
+     */
+    public void setParent(long id, long parent)
+    {
+        segment(id).putLong(offset(id) + PARENT, parent);
+    }
+
+    /**
+     * Compte une proie mangée par un animal.
+     */
+    public void killed(long id)
+    {
+        MappedByteBuffer segment = segment(id);
+        int offset = offset(id) + KILLS;
+        segment.putInt(offset, segment.getInt(offset) + 1);
+    }
+
+    /**
+     * Note la mort d'un animal.
+     * @param id Le numéro de l'animal.
+     * @param death Le pas de sa mort.
+     * @param cause Sa cause : OLD_AGE, STARVATION, EATEN, OVERCROWDING ou EMIGRATED.
+     */
+    public void died(long id, int death, int cause)
+    {
+        MappedByteBuffer segment = segment(id);
+        int offset = offset(id);
+        segment.putInt(offset + DEATH, death);
+        segment.put(offset + CAUSE, (byte) cause);
+    }
+
+    /**
+     * @return Le nombre de vies enregistrées.
+     */
+    public long getCount()
+    {
+        return next.get() - 1;
+    }
+
+    /**
+     * Parcourt les vies enregistrées, dans l'ordre de leur naissance.
+     * @param visitor Le destinataire des vies.
+     */
+    public void scan(LineageVisitor visitor)
+    {
+        long count = next.get();
+        for(long id = 1; id < count; id++) {
+            visit(segment(id), offset(id), visitor);
+        }
+    }
+
+    /**
+     * Écrit le nombre de fiches dans l'en-tête, ramène le fichier à la
+     * taille de ses fiches, y ajoute la table des espèces et le ferme.
+     */
+    public void close() throws IOException
+    {
+        long count = next.get();
+        ByteBuffer names = speciesTable();
+        MappedByteBuffer header = segment(0);
+        header.putLong(COUNT, count);
+        header.putInt(NAMES, names.remaining());
+        for(MappedByteBuffer segment : segments) {
+            if(segment != null) {
+                segment.force();
+            }
+        }
+        channel.truncate(count * RECORD_BYTES);
+        for(long position = count * RECORD_BYTES; names.hasRemaining(); ) {
+            position += channel.write(names, position);
+        }
+        channel.close();
+    }
+
+    /**
+     * Lit la table des espèces d'un registre fermé.
+     * @param file Le fichier du registre.
+     * @return Les noms des espèces, par code ; null pour un code absent
+     *         de la table, ou pour tous si le registre n'en a pas.
+     * @throws IOException Si le fichier est illisible ou d'une autre version.
+     */
+    public static String[] speciesNames(Path file) throws IOException
+    {
+        String[] names = new String[Species.MAX_CODES];
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer header = header(channel, file);
+            int size = header.getInt(4) < 2 ? 0 : header.getInt(NAMES);
+            long position = header.getLong(COUNT) * RECORD_BYTES;
+            if(size <= 0 || position + size > channel.size()) {
+                return names;
+            }
+            ByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+            table.order(ByteOrder.LITTLE_ENDIAN);
+            while(table.hasRemaining()) {
+                int code = table.get() & 0xFF;
+                byte[] name = new byte[table.getShort() & 0xFFFF];
+                table.get(name);
+                names[code] = new String(name, StandardCharsets.UTF_8);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Parcourt les vies d'un registre fermé, par grands segments projetés
+     * en lecture seule.
+     * @param file Le fichier du registre.
+     * @param visitor Le destinataire des vies.
+     * @return Le nombre de vies parcourues.
+     * @throws IOException Si le fichier est illisible ou d'une autre version.
+     */
+    public static long scan(Path file, LineageVisitor visitor) throws IOException
+    {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer header = header(channel, file);
+            long count = Math.min(header.getLong(COUNT), channel.size() / RECORD_BYTES);
+            for(long first = 0; first < count; first += SCAN_RECORDS) {
+                int records = (int) Math.min(SCAN_RECORDS, count - first);
+                MappedByteBuffer segment = map(channel, FileChannel.MapMode.READ_ONLY, first, records);
+                for(int record = first == 0 ? 1 : 0; record < records; record++) {
+                    visit(segment, record * RECORD_BYTES, visitor);
+                }
+            }
+            return Math.max(count - 1, 0);
+        }
+    }
+
+    /**
+     * @return L'en-tête d'un registre, de version VERSION ou antérieure.
+     */
+    private static MappedByteBuffer header(FileChannel channel, Path file) throws IOException
+    {
+        MappedByteBuffer header = map(channel, FileChannel.MapMode.READ_ONLY, 0, 1);
+        if(header.getInt(0) != MAGIC || header.getInt(4) < 1 || header.getInt(4) > VERSION) {
+            throw new IOException(file + " : registre des lignées de version " + header.getInt(4)
+                                  + ", version " + VERSION + " ou antérieure attendue");
+        }
+        return header;
+    }
+
+    /**
+     * @return La table des noms des espèces connues, prête à écrire.
+     */
+    private static ByteBuffer speciesTable()
+    {
+        int species = Species.count();
+        byte[][] names = new byte[species][];
+        int size = 0;
+        for(int code = Species.EMPTY + 1; code < species; code++) {
+            names[code] = Species.nameOf(Species.classOf(code)).getBytes(StandardCharsets.UTF_8);
+            size += 3 + names[code].length;
+        }
+        ByteBuffer table = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        for(int code = Species.EMPTY + 1; code < species; code++) {
+            table.put((byte) code);
+            table.putShort((short) names[code].length);
+            table.put(names[code]);
+        }
+        table.flip();
+        return table;
+    }
+
+    private static void visit(MappedByteBuffer segment, int offset, LineageVisitor visitor)
+    {
+        visitor.visit(segment.getLong(offset + ID), segment.getLong(offset + PARENT),
+                      segment.get(offset + SPECIES) & 0xFF, segment.getInt(offset + BIRTH),
+                      segment.getInt(offset + DEATH), segment.get(offset + CAUSE), segment.getInt(offset + KILLS));
+    }
+
+    private static int offset(long id)
+    {
+        return (int) (id & (SEGMENT_RECORDS - 1)) * RECORD_BYTES;
+    }
+
+    /**
+     * @return Le segment qui contient une fiche, projeté s'il ne l'est pas encore.
+     */
+    private MappedByteBuffer segment(long id)
+    {
+        int index = (int) (id / SEGMENT_RECORDS);
+        MappedByteBuffer[] current = segments;
+        if(index < current.length && current[index] != null) {
+            return current[index];
+        }
+        return grow(index);
+    }
+
+    private synchronized MappedByteBuffer grow(int index)
+    {
+        MappedByteBuffer[] current = segments;
+        if(index >= current.length) {
+            current = Arrays.copyOf(current, Math.max(index + 1, current.length * 2));
+        }
+        if(current[index] == null) {
+            try {
+                current[index] = map(channel, FileChannel.MapMode.READ_WRITE,
+                                     (long) index * SEGMENT_RECORDS, SEGMENT_RECORDS);
+            }
+            catch(IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        segments = current;
+        return current[index];
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, FileChannel.MapMode mode, long first, int records)
+        throws IOException
+    {
+        MappedByteBuffer buffer = channel.map(mode, first * RECORD_BYTES, (long) records * RECORD_BYTES);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+}
@@ -0,0 +1,129 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Résume un registre des lignées (voir LineageRecorder) en un seul
+ * parcours : par espèce, le nombre de vies, la durée de vie moyenne,
+ * les causes de mort, la taille moyenne des portées et le nombre de
+ * proies par animal. Les portées sont reconnues aux fiches consécutives
+ * d'un même parent et d'un même pas de naissance ; une simulation
+ * parallèle peut en entrelacer quelques-unes. Les noms des espèces sont
+ * lus dans la table du registre, si bien que le rapport se fait dans un
+ * autre processus que la simulation.
+ *
+ * Usage : java LineageReport registre
+ *
+ * @author Filipe Dias Morais
+ * @version 2026.10.19
+ */
+public class LineageReport implements LineageVisitor
+{
+    // Les noms des causes de mort, par code.
+    private static final String[] CAUSES = { "vivants", "vieillesse", "faim", "mangés", "surpeuplement", "partis" };
+
+    // Par code d'espèce : vies, vies terminées, somme de leurs durées, portées, petits, proies, record de proies.
+    private final long[] lives = new long[Species.MAX_CODES];
+    private final long[] ended = new long[Species.MAX_CODES];
+    private final long[] lifespans = new long[Species.MAX_CODES];
+    private final long[] litters = new long[Species.MAX_CODES];
+    private final long[] young = new long[Species.MAX_CODES];
+    private final long[] kills = new long[Species.MAX_CODES];
+    private final int[] maxKills = new int[Species.MAX_CODES];
+    // Par code d'espèce et par cause.
+    private final long[][] causes = new long[Species.MAX_CODES][CAUSES.length];
+    // Les noms des espèces du registre, par code.
+    private final String[] names;
+    // Le parent et le pas de naissance de la fiche précédente.
+    private long lastParent;
+    private int lastBirth;
+
+    /**
+     * @param names Les noms des espèces, par code (voir LineageRecorder.speciesNames).
+     */
+    public LineageReport(String[] names)
+    {
+        this.names = names;
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        if(args.length != 1) {
+            System.err.println("Usage : java LineageReport registre");
+            System.exit(2);
+        }
+        Path file = Paths.get(args[0]);
+        LineageReport report = new LineageReport(LineageRecorder.speciesNames(file));
+        long start = System.nanoTime();
+        long count = LineageRecorder.scan(file, report);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        report.print();
+        System.out.printf("%n%d vies parcourues en %.3f s (%.1f millions par seconde)%n",
+                          count, seconds, count / seconds / 1e6);
+    }
+
+    public void visit(long id, long parent, int species, int birth, int death, int cause, int kills)
+    {
+        lives[species]++;
+        if(death != LineageRecorder.ALIVE) {
+            ended[species]++;
+            lifespans[species] += death - birth;
+        }
+        if(cause >= 0 && cause < CAUSES.length) {
+            causes[species][cause]++;
+        }
+        if(parent != 0) {
+            if(parent != lastParent || birth != lastBirth) {
+                litters[species]++;
+            }
+            young[species]++;
+        }
+        this.kills[species] += kills;
+        maxKills[species] = Math.max(maxKills[species], kills);
+        lastParent = parent;
+        lastBirth = birth;
+    }
+
+    /**
+     * Affiche le résumé de chaque espèce présente dans le registre.
+     */
+    public void print()
+    {
+        System.out.printf("%-10s %12s %10s %10s %10s %10s%n",
+                          "espèce", "vies", "durée", "portée", "proies", "record");
+        for(int code = 0; code < Species.MAX_CODES; code++) {
+            if(lives[code] > 0) {
+                System.out.printf("%-10s %12d %10.2f %10.2f %10.3f %10d%n",
+                                  name(code), lives[code], ratio(lifespans[code], ended[code]),
+                                  ratio(young[code], litters[code]), ratio(kills[code], lives[code]), maxKills[code]);
+            }
+        }
+        System.out.printf("%nCauses de mort%n%-10s", "espèce");
+        for(String cause : CAUSES) {
+            System.out.printf(" %14s", cause);
+        }
+        System.out.println();
+        for(int code = 0; code < Species.MAX_CODES; code++) {
+            if(lives[code] > 0) {
+                System.out.printf("%-10s", name(code));
+                for(long count : causes[code]) {
+                    System.out.printf(" %14d", count);
+                }
+                System.out.println();
+            }
+        }
+    }
+
+    /**
+     * @return Le nom de l'espèce, ou son code s'il manque à la table du registre.
+     */
+    private String name(int code)
+    {
+        return names[code] == null ? "#" + code : names[code];
+    }
+
+    private static double ratio(long sum, long count)
+    {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+}
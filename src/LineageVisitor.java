@@ -0,0 +1,21 @@
+/**
+ * Reçoit les vies lues dans un registre des lignées (voir
+ * LineageRecorder.scan), champ par champ, sans objet intermédiaire.
+ *
+ * @author Filipe Dias Morais
+ * @version 2026.10.19
+ */
+public interface LineageVisitor
+{
+    /**
+     * Une vie enregistrée.
+     * @param id Le numéro de l'animal, à partir de 1.
+     * @param parent Le numéro de son parent, 0 s'il n'est pas né d'un animal enregistré.
+     * @param species Son code d'espèce (voir Species).
+     * @param birth Le pas de sa naissance.
+     * @param death Le pas de sa mort, LineageRecorder.ALIVE s'il est encore en vie.
+     * @param cause La cause de sa mort (voir LineageRecorder), NONE s'il est en vie.
+     * @param kills Le nombre de proies qu'il a mangées.
+     */
+    void visit(long id, long parent, int species, int birth, int death, int cause, int kills);
+}
@@ -1,6 +1,14 @@
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
         Simulator simulator = new Simulator();
+        // Exposer la simulation par JMX, et par HTTP si un port est demandé
+        // (par exemple -Dsimulation.http.port=8080).
+        SimulationMonitor monitor = SimulationMonitor.attach(simulator);
+        monitor.register();
+        String port = System.getProperty("simulation.http.port");
+        if (port != null) {
+            monitor.startHttp(Integer.parseInt(port));
+        }
         simulator.runLongSimulation();
     }
-}
\ No newline at end of file
+}
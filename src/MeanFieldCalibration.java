@@ -0,0 +1,312 @@
+import java.awt.Color;
+import java.util.Map;
+
+/**
+ * Compare le modèle en champ moyen (MeanFieldModel) à la simulation
+ * sur un ensemble de configurations de calibration : plusieurs tailles
+ * de terrain et plusieurs variantes des paramètres des renards, des
+ * lapins ou du peuplement, chacune simulée avec plusieurs graines. Les
+ * variantes d'espèces sont compilées (voir SpeciesCompiler) : la
+ * simulation tourne avec les mêmes descriptions que le modèle. Pour
+ * chaque configuration, on compare la viabilité à l'horizon et le
+ * nombre moyen de lapins et de renards (compté à zéro après une
+ * extinction).
+ *
+ * L'écart sur les nombres moyens est donné en |ln((modèle + 1) /
+ * (simulation + 1))| : 0,69 correspond à un facteur 2. Un rejet à tort
+ * est une configuration que le modèle déclare non viable alors que la
+ * plupart des simulations le restent. Le rapport donne aussi la décision
+ * du tri prudent (MeanFieldModel.screen) et ses rejets à tort, l'erreur
+ * qui compte pour le tri des configurations.
+ *
+ * Avec --fit, la part de mélange du modèle est choisie parmi quelques
+ * valeurs : le moins de rejets à tort, puis le moins de désaccords sur
+ * la viabilité, puis le plus petit écart moyen.
+ *
+ * Usage : java MeanFieldCalibration [--fit] [pas] [graines]
+ *
+ * @author Filipe Dias Morais
+ * @version 2026.10.19
+ */
+public class MeanFieldCalibration
+{
+    // Les côtés des terrains de calibration.
+    private static final int[] SIZES = { 50, 100, 150 };
+    // Les variantes de calibration.
+    private static final Variant[] VARIANTS = {
+        new Variant("défaut", rabbit(Rabbit.BREEDING_PROBABILITY, Rabbit.MAX_AGE), fox(Fox.BREEDING_PROBABILITY, Fox.RABBIT_FOOD_VALUE)),
+        new Variant("renards peu féconds", rabbit(Rabbit.BREEDING_PROBABILITY, Rabbit.MAX_AGE), fox(0.05, Fox.RABBIT_FOOD_VALUE)),
+        new Variant("renards vite affamés", rabbit(Rabbit.BREEDING_PROBABILITY, Rabbit.MAX_AGE), fox(Fox.BREEDING_PROBABILITY, 3)),
+        new Variant("renards endurants", rabbit(Rabbit.BREEDING_PROBABILITY, Rabbit.MAX_AGE), fox(Fox.BREEDING_PROBABILITY, 15)),
+        new Variant("lapins peu féconds", rabbit(0.05, Rabbit.MAX_AGE), fox(Fox.BREEDING_PROBABILITY, Fox.RABBIT_FOOD_VALUE)),
+        new Variant("lapins très féconds", rabbit(0.40, Rabbit.MAX_AGE), fox(Fox.BREEDING_PROBABILITY, Fox.RABBIT_FOOD_VALUE)),
+        new Variant("lapins éphémères", rabbit(Rabbit.BREEDING_PROBABILITY, 12), fox(Fox.BREEDING_PROBABILITY, Fox.RABBIT_FOOD_VALUE)),
+        new Variant("peuplement dense", 0.10, 0.10, rabbit(Rabbit.BREEDING_PROBABILITY, Rabbit.MAX_AGE), fox(Fox.BREEDING_PROBABILITY, Fox.RABBIT_FOOD_VALUE)),
+    };
+    // Les parts de mélange essayées avec --fit.
+    private static final double[] MIXINGS = { 0.02, 0.03, 0.05, 0.07, 0.10, 0.15, 0.20, 0.30, 0.50, 1.00 };
+    private static final int DEFAULT_STEPS = 300;
+    private static final int DEFAULT_SEEDS = 3;
+
+    public static void main(String[] args)
+    {
+        boolean fit = args.length > 0 && args[0].equals("--fit");
+        int first = fit ? 1 : 0;
+        int steps = args.length > first ? Integer.parseInt(args[first]) : DEFAULT_STEPS;
+        int seeds = args.length > first + 1 ? Integer.parseInt(args[first + 1]) : DEFAULT_SEEDS;
+
+        int configs = SIZES.length * VARIANTS.length;
+        Result[] agents = new Result[configs];
+        System.out.printf("Simulation de %d configurations, %d graines, %d pas...%n", configs, seeds, steps);
+        for(Variant variant : VARIANTS) {
+            variant.compile();
+        }
+        for(int c = 0; c < configs; c++) {
+            agents[c] = simulate(SIZES[c / VARIANTS.length], VARIANTS[c % VARIANTS.length], steps, seeds);
+        }
+
+        double mixing = MeanFieldModel.DEFAULT_MIXING;
+        if(fit) {
+            System.out.printf("%n%-8s %12s %12s %12s%n", "mélange", "rejets à tort", "désaccords", "écart moyen");
+            double[] best = null;
+            for(double candidate : MIXINGS) {
+                int falseRejections = 0;
+                int disagreements = 0;
+                double error = 0;
+                for(int c = 0; c < configs; c++) {
+                    Result model = model(SIZES[c / VARIANTS.length], VARIANTS[c % VARIANTS.length], steps, candidate);
+                    if(model.isViable() != agents[c].isViable()) {
+                        disagreements++;
+                        falseRejections += agents[c].isViable() ? 1 : 0;
+                    }
+                    error += (logError(model.rabbits, agents[c].rabbits) + logError(model.foxes, agents[c].foxes)) / 2;
+                }
+                error /= configs;
+                System.out.printf("%-8.2f %12d %12d %12.3f%n", candidate, falseRejections, disagreements, error);
+                // Les rejets à tort d'abord, puis les autres désaccords, puis l'écart.
+                double[] score = { falseRejections, disagreements, error };
+                if(best == null || compare(score, best) < 0) {
+                    best = score;
+                    mixing = candidate;
+                }
+            }
+            System.out.printf("Part de mélange retenue : %.2f%n", mixing);
+        }
+
+        System.out.printf("%n%-9s %-22s %9s %9s %9s %9s %9s %9s %9s %9s%n", "terrain", "variante",
+                          "viables", "modèle", "lapins", "(modèle)", "renards", "(modèle)", "écart", "tri");
+        int disagreements = 0;
+        int falseRejections = 0;
+        int screenedOut = 0;
+        int screenFalseRejections = 0;
+        double screenMicros = 0;
+        double rabbitError = 0;
+        double foxError = 0;
+        double agentMillis = 0;
+        double modelMicros = 0;
+        for(int c = 0; c < configs; c++) {
+            int size = SIZES[c / VARIANTS.length];
+            Variant variant = VARIANTS[c % VARIANTS.length];
+            Result agent = agents[c];
+            Result model = model(size, variant, steps, mixing);
+            double error = (logError(model.rabbits, agent.rabbits) + logError(model.foxes, agent.foxes)) / 2;
+            long start = System.nanoTime();
+            boolean kept = MeanFieldModel.screen(size, size, variant.foxCreationProbability,
+                                                 variant.rabbitCreationProbability, variant.prey, variant.predator,
+                                                 steps);
+            screenMicros += (System.nanoTime() - start) / 1e3;
+            System.out.printf("%-9s %-22s %6d/%-2d %9s %9.0f %9.0f %9.0f %9.0f %9.2f %9s%s%n",
+                              size + "x" + size, variant.name,
+                              agent.viable, agent.runs, model.isViable() ? "viable" : "éteint",
+                              agent.rabbits, model.rabbits, agent.foxes, model.foxes, error,
+                              kept ? "gardée" : "écartée",
+                              model.isViable() != agent.isViable() ? "  désaccord" : "");
+            if(!kept) {
+                screenedOut++;
+                if(agent.viable > 0) {
+                    screenFalseRejections++;
+                }
+            }
+            if(model.isViable() != agent.isViable()) {
+                disagreements++;
+                if(agent.isViable()) {
+                    falseRejections++;
+                }
+            }
+            rabbitError += logError(model.rabbits, agent.rabbits);
+            foxError += logError(model.foxes, agent.foxes);
+            agentMillis += agent.nanos / 1e6;
+            modelMicros += model.nanos / 1e3;
+        }
+        System.out.printf("%nPart de mélange : %.2f%n", mixing);
+        System.out.printf("Viabilité : %d/%d configurations en accord, %d rejet(s) à tort%n",
+                          configs - disagreements, configs, falseRejections);
+        System.out.printf("Écart moyen : lapins %.2f, renards %.2f (|ln| des nombres moyens)%n",
+                          rabbitError / configs, foxError / configs);
+        System.out.printf("Tri prudent : %d/%d configurations écartées, dont %d avec au moins une simulation viable%n",
+                          screenedOut, configs, screenFalseRejections);
+        System.out.printf("Durée moyenne : simulation %.1f ms, modèle %.2f ms, tri %.2f ms%n",
+                          agentMillis / configs, modelMicros / 1e3 / configs, screenMicros / 1e3 / configs);
+    }
+
+    /**
+     * Simule une configuration avec plusieurs graines, sans affichage.
+     */
+    private static Result simulate(int size, Variant variant, int steps, int seeds)
+    {
+        Result result = new Result(seeds);
+        FieldStats stats = new FieldStats();
+        String rabbitName = Species.nameOf(variant.compiledPrey.getSpeciesClass());
+        String foxName = Species.nameOf(variant.compiledPredator.getSpeciesClass());
+        for(int seed = 1; seed <= seeds; seed++) {
+            Randomizer.reset(seed);
+            long start = System.nanoTime();
+            // Peuplement comme celui de Simulator : les prédateurs, puis les proies sur les positions libres.
+            Simulator simulator = new Simulator(new Field(size, size), false, 0, 0);
+            simulator.addSpecies(variant.compiledPredator, variant.foxCreationProbability, Color.blue);
+            simulator.addSpecies(variant.compiledPrey, variant.rabbitCreationProbability, Color.orange);
+            double rabbits = 0;
+            double foxes = 0;
+            for(int step = 1; step <= steps && simulator.isViable(); step++) {
+                simulator.simulateOneStep();
+                stats.reset();
+                Map<String, Integer> counts = stats.getCounts(simulator.getField());
+                rabbits += counts.getOrDefault(rabbitName, 0);
+                foxes += counts.getOrDefault(foxName, 0);
+            }
+            result.nanos += (System.nanoTime() - start) / seeds;
+            result.rabbits += rabbits / steps / seeds;
+            result.foxes += foxes / steps / seeds;
+            if(simulator.isViable()) {
+                result.viable++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Exécute le modèle en champ moyen sur une configuration.
+     */
+    private static Result model(int size, Variant variant, int steps, double mixing)
+    {
+        Result result = new Result(1);
+        long start = System.nanoTime();
+        MeanFieldModel model = new MeanFieldModel(size, size, variant.foxCreationProbability,
+                                                  variant.rabbitCreationProbability, variant.prey, variant.predator);
+        model.setMixing(mixing);
+        double rabbits = 0;
+        double foxes = 0;
+        for(int step = 1; step <= steps && model.isViable(); step++) {
+            model.simulateOneStep();
+            rabbits += model.getRabbitCount();
+            foxes += model.getFoxCount();
+        }
+        result.nanos = System.nanoTime() - start;
+        result.rabbits = rabbits / steps;
+        result.foxes = foxes / steps;
+        result.viable = model.isViable() ? 1 : 0;
+        return result;
+    }
+
+    /**
+     * @return Des lapins aux paramètres de Rabbit, sauf ceux donnés.
+     */
+    private static SpeciesSpec rabbit(double breedingProbability, int maxAge)
+    {
+        return new SpeciesSpec("Rabbit", Rabbit.BREEDING_AGE, maxAge, breedingProbability,
+                               Rabbit.MAX_LITTER_SIZE, null, 0);
+    }
+
+    /**
+     * @return Des renards aux paramètres de Fox, sauf ceux donnés.
+     */
+    private static SpeciesSpec fox(double breedingProbability, int foodValue)
+    {
+        return new SpeciesSpec("Fox", Fox.BREEDING_AGE, Fox.MAX_AGE, breedingProbability,
+                               Fox.MAX_LITTER_SIZE, Rabbit.class, foodValue);
+    }
+
+    /**
+     * Compare deux scores dans l'ordre de leurs critères.
+     */
+    private static int compare(double[] score, double[] other)
+    {
+        for(int i = 0; i < score.length; i++) {
+            if(score[i] != other[i]) {
+                return Double.compare(score[i], other[i]);
+            }
+        }
+        return 0;
+    }
+
+    private static double logError(double model, double agent)
+    {
+        return Math.abs(Math.log((model + 1) / (agent + 1)));
+    }
+
+    /**
+     * Une variante de calibration : les descriptions des deux espèces et
+     * les probabilités de création.
+     */
+    private static class Variant
+    {
+        private final String name;
+        private final double foxCreationProbability;
+        private final double rabbitCreationProbability;
+        private final SpeciesSpec prey;
+        private final SpeciesSpec predator;
+        private CompiledSpecies compiledPrey;
+        private CompiledSpecies compiledPredator;
+
+        private Variant(String name, SpeciesSpec prey, SpeciesSpec predator)
+        {
+            this(name, Simulator.FOX_CREATION_PROBABILITY, Simulator.RABBIT_CREATION_PROBABILITY, prey, predator);
+        }
+
+        private Variant(String name, double foxCreationProbability, double rabbitCreationProbability,
+                        SpeciesSpec prey, SpeciesSpec predator)
+        {
+            this.name = name;
+            this.foxCreationProbability = foxCreationProbability;
+            this.rabbitCreationProbability = rabbitCreationProbability;
+            this.prey = prey;
+            this.predator = predator;
+        }
+
+        /**
+         * Compile les deux espèces ; le prédateur chasse la proie compilée.
+         */
+        private void compile()
+        {
+            compiledPrey = SpeciesCompiler.compile(prey);
+            compiledPredator = SpeciesCompiler.compile(new SpeciesSpec(
+                predator.getName(), predator.getBreedingAge(), predator.getMaxAge(), predator.getBreedingProbability(),
+                predator.getMaxLitterSize(), compiledPrey.getSpeciesClass(), predator.getFoodValue()));
+        }
+    }
+
+    /**
+     * Le résultat d'une configuration : nombres moyens, viabilité et durée.
+     */
+    private static class Result
+    {
+        private final int runs;
+        private int viable;
+        private double rabbits;
+        private double foxes;
+        private long nanos;
+
+        private Result(int runs)
+        {
+            this.runs = runs;
+        }
+
+        /**
+         * @return true si la plupart des exécutions sont restées viables.
+         */
+        private boolean isViable()
+        {
+            return 2 * viable > runs;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * Un terrain dont les cellules sont rangées dans l'ordre de Morton
+ * (ordre Z) plutôt que ligne par ligne : l'index d'une cellule
+ * entrelace les bits de sa ligne et de sa colonne. Les cellules
+ * voisines d'une position, y compris celles des lignes du dessus et du
+ * dessous, sont ainsi presque toujours proches en mémoire.
+ *
+ * Sur ce terrain, Simulator trie périodiquement ses animaux selon ce
+ * même ordre (voir getLocalityKey) : les animaux agissent alors dans
+ * l'ordre des cellules en mémoire, et leurs relevés de voisinage
+ * restent dans le cache au lieu de parcourir tout le terrain.
+ *
+ * Les dimensions sont arrondies aux puissances de deux supérieures
+ * dans le stockage ; au-delà de la plus petite des deux, les bits de
+ * la plus grande sont simplement placés en tête de l'index.
+ *
+ * @author Filipe Dias Morais
+ * @version 2026.10.19
+ */
+public class MortonField extends Field
+{
+    // La part de l'index apportée par chaque ligne et par chaque colonne.
+    private final int[] rowBits;
+    private final int[] colBits;
+    // Les cellules, dans l'ordre de Morton.
+    private final Object[] cells;
+
+    /**
+     * Crée un terrain vide de dimensions données.
+     * @param depth Profondeur du terrain
+     * @param width Largeur du terrain
+     * @throws IllegalArgumentException Si le stockage arrondi dépasse la taille d'un tableau.
+     */
+    public MortonField(int depth, int width)
+    {
+        super(depth, width, false);
+        int rowLog = log2Ceil(depth);
+        int colLog = log2Ceil(width);
+        if(rowLog + colLog > 30) {
+            throw new IllegalArgumentException("Terrain trop grand pour un ordre de Morton : " + depth + " x " + width);
+        }
+        // Les bits entrelacés : ligne aux rangs impairs, colonne aux rangs pairs.
+        int shared = Math.min(rowLog, colLog);
+        rowBits = new int[depth];
+        for(int row = 0; row < depth; row++) {
+            rowBits[row] = spread(row, shared, 1);
+        }
+        colBits = new int[width];
+        for(int col = 0; col < width; col++) {
+            colBits[col] = spread(col, shared, 0);
+        }
+        cells = new Object[1 << (rowLog + colLog)];
+    }
+
+    /**
+     * @return L'index de Morton de la position, qui est aussi l'ordre
+     * de ses cellules en mémoire.
+     */
+    public int getLocalityKey(int row, int col)
+    {
+        return rowBits[row] | colBits[col];
+    }
+
+    protected Object readCell(int row, int col)
+    {
+        return cells[rowBits[row] | colBits[col]];
+    }
+
+    protected void writeCell(int row, int col, Object animal)
+    {
+        cells[rowBits[row] | colBits[col]] = animal;
+    }
+
+    /**
+     * Entrelace les bits bas d'une coordonnée et place les autres au-delà
+     * de la partie entrelacée.
+     * @param value La coordonnée.
+     * @param shared Le nombre de bits entrelacés.
+     * @param offset 1 pour une ligne, 0 pour une colonne.
+     */
+    private static int spread(int value, int shared, int offset)
+    {
+        int bits = 0;
+        for(int i = 0; i < shared; i++) {
+            bits |= ((value >>> i) & 1) << (2 * i + offset);
+        }
+        return bits | (value >>> shared) << (2 * shared);
+    }
+
+    /**
+     * @return Le plus petit n tel que 2^n >= value.
+     */
+    private static int log2Ceil(int value)
+    {
+        return 32 - Integer.numberOfLeadingZeros(Math.max(value - 1, 0));
+    }
+}
@@ -0,0 +1,173 @@
+import java.util.Random;
+
+/**
+ * Un relevé des positions adjacentes à une position du terrain, fait en
+ * un seul parcours. Chaque position est classée comme libre, proie ou
+ * autre, et les positions sont mélangées une seule fois. Les naissances,
+ * la chasse et le déplacement d'un animal puisent ensuite dans ce même
+ * relevé, dans l'ordre du mélange.
+ *
+ * Un relevé est réutilisé par chaque fil d'exécution (voir
+ * Field.scanNeighbourhood) : il n'est valable que jusqu'au relevé
+ * suivant fait par le même fil.
+ *
+ * @author Filipe Dias Morais
+ * @version 2026.10.19
+ */
+public class Neighbourhood
+{
+    // Les classes d'une position adjacente.
+    public static final int FREE = 0;
+    public static final int PREY = 1;
+    public static final int OTHER = 2;
+
+    // Le nombre maximal de positions adjacentes.
+    private static final int MAX_SIZE = 8;
+
+    // Les positions relevées, dans l'ordre du mélange.
+    private final int[] rows;
+    private final int[] cols;
+    // La classe de chaque position.
+    private final int[] kinds;
+    // L'occupant de chaque position, null si elle est libre.
+    private final Object[] occupants;
+    // Le terrain relevé.
+    private Field field;
+    // Le nombre de positions relevées.
+    private int size;
+    // Les prochaines positions à examiner pour une place libre ou une proie.
+    private int nextFree, nextPrey;
+
+    /**
+     * Crée un relevé vide.
+     */
+    public Neighbourhood()
+    {
+        rows = new int[MAX_SIZE];
+        cols = new int[MAX_SIZE];
+        kinds = new int[MAX_SIZE];
+        occupants = new Object[MAX_SIZE];
+    }
+
+    /**
+     * Relève les positions adjacentes à une position, dans un ordre aléatoire.
+     * @param field Le terrain.
+     * @param row Ligne de la position.
+     * @param col Colonne de la position.
+     * @param prey La classe des proies, null si l'animal ne chasse pas.
+     * @param rand Le générateur utilisé pour le mélange.
+     */
+    void scan(Field field, int row, int col, Class prey, Random rand)
+    {
+        this.field = field;
+        size = 0;
+        nextFree = 0;
+        nextPrey = 0;
+        for(int roffset = -1; roffset <= 1; roffset++) {
+            int nextRow = row + roffset;
+            if(nextRow >= 0 && nextRow < field.getDepth()) {
+                for(int coffset = -1; coffset <= 1; coffset++) {
+                    int nextCol = col + coffset;
+                    // Exclure les positions non valables et la position initiale.
+                    if(nextCol >= 0 && nextCol < field.getWidth() && (roffset != 0 || coffset != 0)) {
+                        // Mélange au fil du parcours (Fisher-Yates « à rebours ») :
+                        // la nouvelle position prend une place au hasard.
+                        int swap = rand.nextInt(size + 1);
+                        rows[size] = rows[swap];
+                        cols[size] = cols[swap];
+                        occupants[size] = occupants[swap];
+                        rows[swap] = nextRow;
+                        cols[swap] = nextCol;
+                        occupants[swap] = field.getObjectAt(nextRow, nextCol);
+                        size++;
+                    }
+                }
+            }
+        }
+        for(int i = 0; i < size; i++) {
+            Object occupant = occupants[i];
+            if(occupant == null) {
+                kinds[i] = FREE;
+            }
+            else if(prey != null && prey.isInstance(occupant)) {
+                kinds[i] = PREY;
+            }
+            else {
+                kinds[i] = OTHER;
+            }
+        }
+    }
+
+    /**
+     * @return Le nombre de positions adjacentes.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * @param index Un index, entre 0 et size() exclu, dans l'ordre du mélange.
+     * @return La classe de la position : FREE, PREY ou OTHER.
+     */
+    public int getKind(int index)
+    {
+        return kinds[index];
+    }
+
+    /**
+     * @param index Un index, entre 0 et size() exclu.
+     * @return La position relevée à cet index.
+     */
+    public Location getLocation(int index)
+    {
+        return new Location(rows[index], cols[index]);
+    }
+
+    /**
+     * @param index Un index, entre 0 et size() exclu.
+     * @return L'occupant de la position au moment du relevé, null si elle était libre.
+     */
+    public Object getOccupant(int index)
+    {
+        return occupants[index];
+    }
+
+    /**
+     * Prend et réserve la prochaine position libre (voir Field.claim).
+     * Si un autre fil l'a prise depuis le relevé, la position libre
+     * suivante est essayée.
+     * @return La position, ou null s'il n'y a plus de position libre.
+     */
+    public Location takeFree()
+    {
+        while(nextFree < size) {
+            int index = nextFree++;
+            if(kinds[index] == FREE) {
+                kinds[index] = OTHER;
+                if(field.claim(rows[index], cols[index])) {
+                    return new Location(rows[index], cols[index]);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Passe à la prochaine proie du relevé encore vivante.
+     * @return Son index, ou -1 s'il n'y en a plus.
+     */
+    public int nextPrey()
+    {
+        while(nextPrey < size) {
+            int index = nextPrey++;
+            if(kinds[index] == PREY) {
+                kinds[index] = OTHER;
+                if(((Animal) occupants[index]).isAlive()) {
+                    return index;
+                }
+            }
+        }
+        return -1;
+    }
+}
@@ -12,13 +12,13 @@ public class Rabbit extends Animal {
     // Caractéristiques partagées par tous les lapins (champs statiques).
 
     // L'âge à partir duquel un lapin peut se reproduire.
-    private static final int BREEDING_AGE = 5;
+    static final int BREEDING_AGE = 5;
     // L'âge maximal d'un lapin.
-    private static final int MAX_AGE = 40;
+    static final int MAX_AGE = 40;
     // La probabilité de reproduction d'un lapin.
-    private static final double BREEDING_PROBABILITY = 0.15;
+    static final double BREEDING_PROBABILITY = 0.15;
     // La taille maximale d'une portée.
-    private static final int MAX_LITTER_SIZE = 4;
+    static final int MAX_LITTER_SIZE = 4;
     // Un générateur de nombres aléatoires commun pour contrôler les reproductions.
 
     // Caractéristiques individuelles (champs d'instance).
@@ -34,59 +34,39 @@ public class Rabbit extends Animal {
      * @param randomAge Si true, le lapin aura un âge aléatoire.
      * @param field     Le terrain actuellement occupé.
      * @param location  L'emplacement sur le terrain.
+     * @param lifecycle L'horloge de la simulation.
      */
-    public Rabbit(boolean randomAge, Field field, Location location) {
-        super(field, location);
+    public Rabbit(boolean randomAge, Field field, Location location, Lifecycle lifecycle) {
+        super(field, location, lifecycle);
         super.setField(field);
         super.setLocation(location);
         if (randomAge) {
-            setAge(rand.nextInt(MAX_AGE));
+            setAge(getField().random().nextInt(MAX_AGE));
         }
     }
 
     /**
      * Ce que fait un lapin la plupart du temps : il se déplace.
-     * Il peut se reproduire ou mourir de vieillesse.
+     * Il peut se reproduire. La mort de vieillesse est traitée par
+     * l'horloge de la simulation, avant le pas. Le lapin suit le pas
+     * commun des animaux (voir Animal.step), sans proie.
      *
      * @param newRabbits Une liste à laquelle ajouter les nouveau-nés.
      */
     public void act(List<Animal> newRabbits) {
-        incrementAge();
-        if (isAlive()) {
-            giveBirth(newRabbits);
-            // Essaie de passer à un nouvel emplacement.
-            Location newLocation = getField().freeAdjacentLocation(getLocation());
-            if (newLocation != null) {
-                setLocation(newLocation);
-            } else {
-                // Surpopulation.
-                setDead();
-            }
-        }
+        step(newRabbits, null, 0);
     }
 
-
     /**
-     * Vérifie si ce lapin va donner naissance.
-     * Les nouveau-nés seront placés dans des sites adjacents libres.
+     * Crée un lapin nouveau-né.
      *
-     * @param newRabbits Une liste pour ajouter les nouveau-nés.
+     * @param location La position du nouveau-né, libre.
+     * @return Le nouveau-né.
      */
-    private void giveBirth(List<Animal> newRabbits) {
-        // Nouveau-nés placés dans des sites adjacents.
-        // Obtenir une liste des emplacements adjacents libres.
-        List<Location> free = getField().getFreeAdjacentLocations(getLocation());
-        int births = breed();
-        for (int b = 0; b < births && free.size() > 0; b++) {
-            Location loc = free.remove(0);
-            Rabbit young = new Rabbit(false, getField(), loc);
-            newRabbits.add(young);
-        }
+    protected Animal newborn(Location location) {
+        return new Rabbit(false, getField(), location, getLifecycle());
     }
 
-
-
-
     /**
      * Un lapin peut se reproduire s'il a atteint l'âge adulte.
      *
@@ -47,4 +47,18 @@ public class Randomizer
             rand.setSeed(SEED);
         }
     }
+
+    /**
+     * Réinitialise la randomisation avec une base donnée, pour rejouer
+     * un scénario à l'identique.
+     * Ceci n'aura aucun effet si la randomisation ne passe pas par
+     * un générateur Random partagé.
+     * @param seed La base du générateur.
+     */
+    public static void reset(long seed)
+    {
+        if(useShared) {
+            rand.setSeed(seed);
+        }
+    }
 }
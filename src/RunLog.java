@@ -0,0 +1,237 @@
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Un journal compact d'une simulation. Chaque pas est enregistré comme
+ * une suite de modifications de cellules (naissances, morts et
+ * déplacements) ; une image complète du terrain est insérée à
+ * intervalles réguliers pour permettre un accès direct (voir RunReplayer).
+ *
+ * Format du fichier : un en-tête (MAGIC, VERSION, profondeur, largeur),
+ * puis une suite de trames (type, pas, longueur, contenu). Dans une
+ * trame de modifications, chaque opération est l'écart zigzag avec la
+ * cellule précédente, en varint, suivi du nouveau code d'espèce
+ * (Species.EMPTY pour une cellule vidée). Une image complète donne le
+ * nombre de cellules occupées, puis pour chacune le nombre de cellules
+ * vides qui la précèdent, en varint, suivi de son code d'espèce.
+ *
+ * @author Filipe Dias Morais
+ * @version 2026.10.19
+ */
+public class RunLog implements FieldListener, SimulationListener, Closeable
+{
+    // Identifie un fichier journal ("RLOG").
+    public static final int MAGIC = 0x524C4F47;
+    // Version du format.
+    public static final int VERSION = 1;
+    // Type d'une trame contenant une image complète du terrain.
+    public static final byte KEYFRAME = 'K';
+    // Type d'une trame contenant les modifications d'un pas.
+    public static final byte DELTA = 'D';
+    // Intervalle par défaut entre deux images complètes, en pas.
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 100;
+
+    // Le flux de sortie du journal.
+    private final DataOutputStream out;
+    // Le nombre de pas entre deux images complètes.
+    private final int keyframeInterval;
+    // La largeur du terrain enregistré, 0 avant la première image.
+    private int width;
+    // Le pas de la dernière image complète, -1 s'il n'y en a pas encore.
+    private int lastKeyframeStep;
+    // Le dernier pas enregistré.
+    private int lastStep;
+    // Les modifications du pas en cours, déjà encodées.
+    private byte[] ops;
+    // Le nombre d'octets utilisés dans ops.
+    private int length;
+    // Le nombre de modifications du pas en cours.
+    private int opCount;
+    // L'index de la dernière cellule modifiée.
+    private int lastIndex;
+    // Les index des cellules occupées, pour l'image complète en cours.
+    private int[] cells;
+    // Le nombre de cellules occupées relevées dans cells.
+    private int occupied;
+
+    /**
+     * Crée un journal avec l'intervalle d'images complètes par défaut.
+     * @param file Le fichier du journal, remplacé s'il existe.
+     * @throws IOException Si le fichier ne peut pas être créé.
+     */
+    public RunLog(Path file) throws IOException
+    {
+        this(file, DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    /**
+     * Crée un journal.
+     * @param file Le fichier du journal, remplacé s'il existe.
+     * @param keyframeInterval Le nombre de pas entre deux images complètes.
+     * @throws IOException Si le fichier ne peut pas être créé.
+     */
+    public RunLog(Path file, int keyframeInterval) throws IOException
+    {
+        if(keyframeInterval <= 0) {
+            throw new IllegalArgumentException("Intervalle d'images invalide : " + keyframeInterval);
+        }
+        this.keyframeInterval = keyframeInterval;
+        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+        ops = new byte[4096];
+        cells = new int[1024];
+        lastKeyframeStep = -1;
+    }
+
+    public void placed(Object animal, int row, int col)
+    {
+        addOp(row * width + col, Species.codeOf(animal));
+    }
+
+    public void cleared(Object animal, int row, int col)
+    {
+        addOp(row * width + col, Species.EMPTY);
+    }
+
+    /**
+     * Enregistre le pas terminé. Une image complète est écrite pour le
+     * premier pas, après une réinitialisation et tous les keyframeInterval pas.
+     */
+    public void stepCompleted(int step, Field field)
+    {
+        try {
+            if(lastKeyframeStep < 0 || step <= lastStep || step - lastKeyframeStep >= keyframeInterval) {
+                writeKeyframe(step, field);
+            }
+            else {
+                writeDelta(step);
+            }
+        }
+        catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        lastStep = step;
+        length = 0;
+        opCount = 0;
+        lastIndex = 0;
+    }
+
+    /**
+     * Termine et ferme le journal.
+     * @throws IOException Si l'écriture échoue.
+     */
+    public void close() throws IOException
+    {
+        out.close();
+    }
+
+    /**
+     * Ajoute une modification de cellule au pas en cours.
+     */
+    private void addOp(int index, int code)
+    {
+        if(width == 0) {
+            // Pas encore d'image de départ : rien à quoi rattacher la modification.
+            return;
+        }
+        int delta = index - lastIndex;
+        writeVarInt((delta << 1) ^ (delta >> 31));
+        writeByte(code);
+        lastIndex = index;
+        opCount++;
+    }
+
+    /**
+     * Écrit la trame des modifications du pas en cours.
+     */
+    private void writeDelta(int step) throws IOException
+    {
+        writeFrame(DELTA, step, opCount);
+    }
+
+    /**
+     * Écrit une image complète du terrain.
+     */
+    private void writeKeyframe(int step, Field field) throws IOException
+    {
+        if(width == 0) {
+            width = field.getWidth();
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(field.getDepth());
+            out.writeInt(width);
+        }
+        // Relever les cellules occupées des tuiles actives, puis les trier par index.
+        occupied = 0;
+        field.forEachActiveRow((row, fromCol, toCol) -> {
+            for(int col = fromCol; col < toCol; col++) {
+                if(field.getCodeAt(row, col) != Species.EMPTY) {
+                    if(occupied == cells.length) {
+                        cells = Arrays.copyOf(cells, cells.length * 2);
+                    }
+                    cells[occupied++] = row * width + col;
+                }
+            }
+        });
+        Arrays.sort(cells, 0, occupied);
+        length = 0;
+        int previous = -1;
+        for(int i = 0; i < occupied; i++) {
+            int index = cells[i];
+            writeVarInt(index - previous - 1);
+            writeByte(field.getCodeAt(index / width, index % width));
+            previous = index;
+        }
+        writeFrame(KEYFRAME, step, occupied);
+        lastKeyframeStep = step;
+    }
+
+    /**
+     * Écrit une trame : type, pas, longueur, puis le nombre d'éléments
+     * en varint suivi des éléments encodés dans le tampon.
+     */
+    private void writeFrame(byte type, int step, int count) throws IOException
+    {
+        int countLength = 1;
+        for(int rest = count >>> 7; rest != 0; rest >>>= 7) {
+            countLength++;
+        }
+        out.writeByte(type);
+        out.writeInt(step);
+        out.writeInt(countLength + length);
+        while((count & ~0x7F) != 0) {
+            out.writeByte((count & 0x7F) | 0x80);
+            count >>>= 7;
+        }
+        out.writeByte(count);
+        out.write(ops, 0, length);
+    }
+
+    /**
+     * Ajoute un entier positif encodé en varint (7 bits par octet).
+     */
+    private void writeVarInt(int value)
+    {
+        while((value & ~0x7F) != 0) {
+            writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        writeByte(value);
+    }
+
+    /**
+     * Ajoute un octet au tampon d'encodage.
+     */
+    private void writeByte(int value)
+    {
+        if(length == ops.length) {
+            ops = Arrays.copyOf(ops, ops.length * 2);
+        }
+        ops[length++] = (byte) value;
+    }
+}
@@ -0,0 +1,204 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Relit un journal de simulation écrit par RunLog. Le terrain de
+ * n'importe quel pas enregistré est reconstruit à partir de l'image
+ * complète la plus proche, sans refaire la simulation.
+ * Le terrain reconstruit ne contient que des codes d'espèce : il peut
+ * être affiché par SimulatorView ou compté par FieldStats, mais
+ * getObjectAt y renvoie toujours null.
+ *
+ * Si le journal contient plusieurs exécutions (après une
+ * réinitialisation), seule la dernière est relue.
+ *
+ * @author Filipe Dias Morais
+ * @version 2026.10.19
+ */
+public class RunReplayer
+{
+    // Taille de l'en-tête d'une trame : type, pas et longueur.
+    private static final int FRAME_HEADER = 1 + Integer.BYTES + Integer.BYTES;
+
+    // Le contenu du journal.
+    private final MappedByteBuffer data;
+    // Le terrain reconstruit.
+    private final CompactField field;
+    // Le pas de chaque trame.
+    private int[] steps;
+    // La position du contenu de chaque trame.
+    private int[] offsets;
+    // Indique si chaque trame est une image complète.
+    private boolean[] keyframes;
+    // Le nombre de trames.
+    private int frameCount;
+    // La dernière trame appliquée au terrain, -1 si aucune.
+    private int currentFrame;
+    // Position de lecture dans le journal.
+    private int position;
+
+    /**
+     * Ouvre un journal et indexe ses trames.
+     * @param file Le fichier du journal.
+     * @throws IOException Si le fichier ne peut pas être lu ou n'est pas un journal.
+     */
+    public RunReplayer(Path file) throws IOException
+    {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if(data.limit() < 4 * Integer.BYTES || data.getInt(0) != RunLog.MAGIC) {
+            throw new IOException("Pas un journal de simulation : " + file);
+        }
+        if(data.getInt(4) != RunLog.VERSION) {
+            throw new IOException("Version de journal non prise en charge : " + data.getInt(4));
+        }
+        field = new CompactField(data.getInt(8), data.getInt(12));
+        steps = new int[64];
+        offsets = new int[64];
+        keyframes = new boolean[64];
+        index(4 * Integer.BYTES);
+        if(frameCount == 0) {
+            throw new IOException("Journal vide : " + file);
+        }
+        currentFrame = -1;
+    }
+
+    /**
+     * @return Le premier pas enregistré.
+     */
+    public int getFirstStep()
+    {
+        return steps[0];
+    }
+
+    /**
+     * @return Le dernier pas enregistré.
+     */
+    public int getLastStep()
+    {
+        return steps[frameCount - 1];
+    }
+
+    /**
+     * Reconstruit le terrain à un pas donné. Avancer d'un pas à l'autre
+     * n'applique que les modifications intermédiaires ; sinon la
+     * reconstruction repart de l'image complète précédant le pas.
+     * @param step Le pas voulu, entre getFirstStep et getLastStep.
+     * @return Le terrain à ce pas. Le même objet est réutilisé à chaque appel.
+     */
+    public Field seek(int step)
+    {
+        int target = Arrays.binarySearch(steps, 0, frameCount, step);
+        if(target < 0) {
+            // Pas absent (simulation arrêtée entre deux trames) : prendre la trame précédente.
+            target = -target - 2;
+        }
+        if(target < 0) {
+            throw new IllegalArgumentException("Pas non enregistré : " + step);
+        }
+        int key = target;
+        while(!keyframes[key]) {
+            key--;
+        }
+        int from;
+        if(currentFrame >= key && currentFrame <= target) {
+            from = currentFrame + 1;
+        }
+        else {
+            loadKeyframe(key);
+            from = key + 1;
+        }
+        for(int frame = from; frame <= target; frame++) {
+            applyDelta(frame);
+        }
+        currentFrame = target;
+        return field;
+    }
+
+    /**
+     * Parcourt les trames et mémorise leur position.
+     */
+    private void index(int offset) throws IOException
+    {
+        while(offset + FRAME_HEADER <= data.limit()) {
+            byte type = data.get(offset);
+            int step = data.getInt(offset + 1);
+            int length = data.getInt(offset + 5);
+            int start = offset + FRAME_HEADER;
+            if(start + length > data.limit()) {
+                // Dernière trame incomplète : journal non fermé.
+                break;
+            }
+            if(type != RunLog.KEYFRAME && type != RunLog.DELTA) {
+                throw new IOException("Trame invalide à la position " + offset);
+            }
+            if(frameCount > 0 && step <= steps[frameCount - 1]) {
+                // Nouvelle exécution : oublier la précédente.
+                frameCount = 0;
+            }
+            if(frameCount == steps.length) {
+                steps = Arrays.copyOf(steps, frameCount * 2);
+                offsets = Arrays.copyOf(offsets, frameCount * 2);
+                keyframes = Arrays.copyOf(keyframes, frameCount * 2);
+            }
+            steps[frameCount] = step;
+            offsets[frameCount] = start;
+            keyframes[frameCount] = type == RunLog.KEYFRAME;
+            frameCount++;
+            offset = start + length;
+        }
+    }
+
+    /**
+     * Remplace le terrain par une image complète.
+     */
+    private void loadKeyframe(int frame)
+    {
+        field.clear();
+        int width = field.getWidth();
+        position = offsets[frame];
+        int occupied = readVarInt();
+        int index = -1;
+        for(int i = 0; i < occupied; i++) {
+            index += readVarInt() + 1;
+            field.setCode(index / width, index % width, data.get(position++) & 0xFF);
+        }
+    }
+
+    /**
+     * Applique au terrain les modifications d'une trame.
+     */
+    private void applyDelta(int frame)
+    {
+        int width = field.getWidth();
+        position = offsets[frame];
+        int count = readVarInt();
+        int index = 0;
+        for(int i = 0; i < count; i++) {
+            int zigzag = readVarInt();
+            index += (zigzag >>> 1) ^ -(zigzag & 1);
+            field.setCode(index / width, index % width, data.get(position++) & 0xFF);
+        }
+    }
+
+    /**
+     * Lit un entier encodé en varint à la position courante.
+     */
+    private int readVarInt()
+    {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data.get(position++);
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while(b < 0);
+        return value;
+    }
+}
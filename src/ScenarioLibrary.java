@@ -0,0 +1,247 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Une bibliothèque de dispositions de départ (voir Layout), pour des
+ * mesures et des essais représentatifs : le peuplement uniforme de
+ * Simulator cache les comportements qui dépendent du regroupement des
+ * animaux, de leur densité et de la part de chaque espèce.
+ *
+ * Chaque disposition est décrite par des densités et des distances en
+ * cellules, si bien qu'elle garde le même aspect sur un terrain de
+ * toute taille, sans être pour autant identique : les positions des
+ * hardes et des poches sont tirées selon la taille. Les dispositions
+ * nommées (voir named) sont :
+ * <ul>
+ * <li>uniform : le peuplement de Simulator ;</li>
+ * <li>herds : des hardes de lapins, des renards autour ;</li>
+ * <li>front : une ligne de renards qui avance vers les lapins ;</li>
+ * <li>near-full : un terrain presque plein ;</li>
+ * <li>sparse : un terrain presque vide ;</li>
+ * <li>post-crash : quelques poches de lapins et de rares renards,
+ * comme après l'effondrement d'une population.</li>
+ * </ul>
+ *
+ * @author Filipe Dias Morais
+ * @version 2026.10.19
+ */
+public final class ScenarioLibrary
+{
+    // Les dispositions nommées.
+    private static final Map<String, Layout> NAMED = new LinkedHashMap<String, Layout>();
+
+    static {
+        add(uniform(Simulator.FOX_CREATION_PROBABILITY, Simulator.RABBIT_CREATION_PROBABILITY));
+        add(herds(40, 10, 0.1));
+        add(predatorFront(0.1, 0.2, 0.15));
+        add(nearFull(0.97, 0.1));
+        add(sparse(0.001, 0.2));
+        add(postCrash(150, 8, 0.002, 0.0002));
+    }
+
+    private ScenarioLibrary()
+    {
+    }
+
+    /**
+     * @param name Le nom d'une disposition.
+     * @return La disposition.
+     * @throws IllegalArgumentException Si aucune disposition ne porte ce nom.
+     */
+    public static Layout named(String name)
+    {
+        Layout layout = NAMED.get(name);
+        if(layout == null) {
+            throw new IllegalArgumentException("Disposition inconnue : " + name + ", attendue parmi " + names());
+        }
+        return layout;
+    }
+
+    /**
+     * @return Les noms des dispositions, dans l'ordre de la bibliothèque.
+     */
+    public static List<String> names()
+    {
+        return new ArrayList<String>(NAMED.keySet());
+    }
+
+    /**
+     * Le peuplement de Simulator : un renard par cellule avec sa
+     * probabilité, puis un lapin par cellule restante avec la sienne.
+     * La suite des tirages n'est pas celle de Simulator.
+     * @param foxProbability La probabilité qu'un renard soit créé à une position.
+     * @param rabbitProbability La probabilité qu'un lapin soit créé à une position sans renard.
+     */
+    public static Layout uniform(final double foxProbability, final double rabbitProbability)
+    {
+        return new Layout("uniform") {
+            protected void generate(Placement placement, int depth, int width)
+            {
+                placement.scatter(Species.FOX, foxProbability, 0, 0, depth, width);
+                placement.scatter(Species.RABBIT, rabbitProbability, 0, 0, depth, width);
+            }
+        };
+    }
+
+    /**
+     * Des hardes de lapins, dont la densité décroît du centre vers le
+     * bord, avec des renards qui rôdent autour.
+     * @param spacing La distance moyenne entre deux hardes, en cellules.
+     * @param radius Le rayon d'une harde, en cellules.
+     * @param foxShare Le nombre de renards autour d'une harde, par lapin.
+     */
+    public static Layout herds(final int spacing, final int radius, final double foxShare)
+    {
+        checkPositive(spacing, "Distance entre les hardes");
+        checkPositive(radius, "Rayon des hardes");
+        return new Layout("herds") {
+            protected void generate(Placement placement, int depth, int width)
+            {
+                Random rand = placement.getRandom();
+                int herds = Math.max(1, (int) ((long) depth * width / ((long) spacing * spacing)));
+                for(int herd = 0; herd < herds; herd++) {
+                    int row = rand.nextInt(depth);
+                    int col = rand.nextInt(width);
+                    int rabbits = herd(placement, row, col, radius);
+                    // Les renards se tiennent entre une fois et une fois et demie le rayon.
+                    int foxes = (int) Math.round(rabbits * foxShare);
+                    for(int fox = 0; fox < foxes; fox++) {
+                        double angle = rand.nextDouble() * 2 * Math.PI;
+                        double distance = radius * (1 + rand.nextDouble() / 2);
+                        placement.place(Species.FOX, row + (int) Math.round(distance * Math.sin(angle)),
+                              col + (int) Math.round(distance * Math.cos(angle)));
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Une bande de renards le long du bord ouest, face à des lapins
+     * répartis sur le reste du terrain.
+     * @param frontShare La part de la largeur occupée par la bande.
+     * @param foxDensity La densité des renards dans la bande.
+     * @param rabbitDensity La densité des lapins hors de la bande.
+     */
+    public static Layout predatorFront(final double frontShare, final double foxDensity, final double rabbitDensity)
+    {
+        return new Layout("front") {
+            protected void generate(Placement placement, int depth, int width)
+            {
+                int front = Math.max(1, (int) (width * frontShare));
+                placement.scatter(Species.FOX, foxDensity, 0, 0, depth, front);
+                placement.scatter(Species.RABBIT, rabbitDensity, 0, front, depth, width);
+            }
+        };
+    }
+
+    /**
+     * Un terrain presque plein, où peu d'animaux peuvent se déplacer
+     * ou se reproduire.
+     * @param fill La part des cellules occupées.
+     * @param foxShare La part des renards parmi les animaux.
+     */
+    public static Layout nearFull(final double fill, final double foxShare)
+    {
+        return new Layout("near-full") {
+            protected void generate(Placement placement, int depth, int width)
+            {
+                Random rand = placement.getRandom();
+                // Presque toutes les cellules sont tirées : un tirage par cellule suffit.
+                double foxes = fill * foxShare;
+                for(int row = 0; row < depth; row++) {
+                    for(int col = 0; col < width; col++) {
+                        double draw = rand.nextDouble();
+                        if(draw < foxes) {
+                            placement.place(Species.FOX, row, col);
+                        }
+                        else if(draw < fill) {
+                            placement.place(Species.RABBIT, row, col);
+                        }
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Un terrain presque vide, chargé en un temps proportionnel au
+     * nombre de ses animaux.
+     * @param density La part des cellules occupées.
+     * @param foxShare La part des renards parmi les animaux.
+     */
+    public static Layout sparse(final double density, final double foxShare)
+    {
+        return new Layout("sparse") {
+            protected void generate(Placement placement, int depth, int width)
+            {
+                placement.scatter(Species.FOX, density * foxShare, 0, 0, depth, width);
+                placement.scatter(Species.RABBIT, density * (1 - foxShare), 0, 0, depth, width);
+            }
+        };
+    }
+
+    /**
+     * L'état qui suit l'effondrement d'une population : quelques poches
+     * de lapins éloignées, des lapins isolés et de rares renards.
+     * @param spacing La distance moyenne entre deux poches, en cellules.
+     * @param radius Le rayon d'une poche, en cellules.
+     * @param rabbitDensity La densité des lapins isolés.
+     * @param foxDensity La densité des renards.
+     */
+    public static Layout postCrash(final int spacing, final int radius,
+                                   final double rabbitDensity, final double foxDensity)
+    {
+        checkPositive(spacing, "Distance entre les poches");
+        checkPositive(radius, "Rayon des poches");
+        return new Layout("post-crash") {
+            protected void generate(Placement placement, int depth, int width)
+            {
+                Random rand = placement.getRandom();
+                int pockets = Math.max(1, (int) ((long) depth * width / ((long) spacing * spacing)));
+                for(int pocket = 0; pocket < pockets; pocket++) {
+                    herd(placement, rand.nextInt(depth), rand.nextInt(width), radius);
+                }
+                placement.scatter(Species.RABBIT, rabbitDensity, 0, 0, depth, width);
+                placement.scatter(Species.FOX, foxDensity, 0, 0, depth, width);
+            }
+        };
+    }
+
+    /**
+     * Place une harde de lapins, pleine au centre et de plus en plus
+     * clairsemée jusqu'à son rayon.
+     * @return Le nombre de lapins placés.
+     */
+    private static int herd(Layout.Placement placement, int row, int col, int radius)
+    {
+        Random rand = placement.getRandom();
+        int placed = 0;
+        int squared = radius * radius;
+        for(int dr = -radius; dr <= radius; dr++) {
+            for(int dc = -radius; dc <= radius; dc++) {
+                int distance = dr * dr + dc * dc;
+                if(distance <= squared && rand.nextDouble() < 1 - (double) distance / squared
+                   && placement.place(Species.RABBIT, row + dr, col + dc)) {
+                    placed++;
+                }
+            }
+        }
+        return placed;
+    }
+
+    private static void add(Layout layout)
+    {
+        NAMED.put(layout.getName(), layout);
+    }
+
+    private static void checkPositive(int value, String what)
+    {
+        if(value <= 0) {
+            throw new IllegalArgumentException(what + " invalide : " + value);
+        }
+    }
+}
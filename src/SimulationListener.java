@@ -0,0 +1,16 @@
+/**
+ * Un observateur de l'avancement d'une simulation.
+ *
+ * @author Filipe Dias Morais
+ * @version 2026.10.19
+ */
+public interface SimulationListener
+{
+    /**
+     * Un pas de simulation vient de se terminer. Le pas 0 correspond
+     * à l'état de départ, après une réinitialisation.
+     * @param step Le numéro du pas terminé.
+     * @param field L'état du terrain à la fin du pas.
+     */
+    void stepCompleted(int step, Field field);
+}
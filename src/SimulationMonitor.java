@@ -0,0 +1,420 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Surveille une simulation en cours et permet de la piloter, par JMX
+ * et éventuellement par un petit serveur HTTP local.
+ *
+ * Le fil de simulation publie après chaque pas des mesures immuables ;
+ * les lectures (JMX ou HTTP) ne prennent aucun verrou et ne font jamais
+ * attendre la simulation. Les comptes par espèce sont tenus à jour à
+ * chaque modification du terrain, que le moniteur observe, et publiés au
+ * plus tous les PUBLISH_INTERVAL_MILLIS. Seules la pause et le
+ * ralentissement, demandés explicitement, arrêtent le fil de simulation.
+ *
+ * @author Filipe Dias Morais
+ * @version 2026.10.19
+ */
+public class SimulationMonitor implements SimulationMonitorMXBean, SimulationListener, FieldListener, Closeable
+{
+    // Le nom JMX du moniteur.
+    public static final String OBJECT_NAME = "Exercice10:type=SimulationMonitor";
+    // L'intervalle minimal entre deux publications des comptes et du débit.
+    public static final long PUBLISH_INTERVAL_MILLIS = 200;
+
+    // Le nombre d'animaux de chaque espèce sur le terrain observé, indexé
+    // par code d'espèce (fil de simulation).
+    private final int[] counts;
+    // Les durées des pas.
+    private final LatencyHistogram latencies;
+    // Le nombre de pas autorisés pendant la pause.
+    private final AtomicInteger stepsAllowed;
+    // Les dernières mesures publiées.
+    private volatile Snapshot snapshot;
+    // Le dernier pas terminé.
+    private volatile int step;
+    // Indique si la simulation doit se mettre en pause.
+    private volatile boolean paused;
+    // La durée minimale d'un pas, en millisecondes.
+    private volatile int minStepMillis;
+    // Le fil de simulation, à réveiller à la reprise.
+    private volatile Thread simulationThread;
+    // Le terrain observé (fil de simulation).
+    private Field field;
+    // La fin du pas précédent (fil de simulation).
+    private long lastStepEnd;
+    // Le moment et le pas de la dernière publication (fil de simulation).
+    private long lastPublish;
+    private int lastPublishStep;
+    // Le nom JMX, s'il est enregistré.
+    private ObjectName name;
+    // Le serveur HTTP, s'il est démarré.
+    private HttpServer server;
+
+    /**
+     * Crée un moniteur. Il doit être ajouté comme observateur d'une
+     * simulation (voir attach).
+     */
+    public SimulationMonitor()
+    {
+        counts = new int[Species.MAX_CODES];
+        latencies = new LatencyHistogram();
+        stepsAllowed = new AtomicInteger();
+        snapshot = new Snapshot(Collections.<String, Integer>emptyMap(), 0);
+    }
+
+    /**
+     * Crée un moniteur et l'attache à une simulation.
+     * @param simulator La simulation à surveiller.
+     * @return Le moniteur.
+     */
+    public static SimulationMonitor attach(Simulator simulator)
+    {
+        SimulationMonitor monitor = new SimulationMonitor();
+        simulator.addSimulationListener(monitor);
+        monitor.stepCompleted(simulator.getStep(), simulator.getField());
+        return monitor;
+    }
+
+    /**
+     * Enregistre le moniteur auprès du serveur JMX de la plateforme.
+     * @return Le nom JMX du moniteur.
+     * @throws JMException Si l'enregistrement échoue.
+     */
+    public ObjectName register() throws JMException
+    {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        name = new ObjectName(OBJECT_NAME);
+        server.registerMBean(this, name);
+        return name;
+    }
+
+    /**
+     * Démarre un serveur HTTP local (adresse de bouclage uniquement).
+     * GET /metrics renvoie les mesures en texte ; POST /pause, /resume,
+     * /step et /throttle?ms=N pilotent la simulation.
+     * @param port Le port d'écoute, 0 pour un port libre quelconque.
+     * @return Le port d'écoute effectif.
+     * @throws IOException Si le serveur ne peut pas démarrer.
+     */
+    public int startHttp(int port) throws IOException
+    {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        ExecutorService executor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "simulation-monitor-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/metrics", exchange -> respond(exchange, "GET", metrics()));
+        server.createContext("/pause", exchange -> {
+            if(respond(exchange, "POST", "paused\n")) {
+                pause();
+            }
+        });
+        server.createContext("/resume", exchange -> {
+            if(respond(exchange, "POST", "resumed\n")) {
+                resume();
+            }
+        });
+        server.createContext("/step", exchange -> {
+            if(respond(exchange, "POST", "stepping\n")) {
+                stepOnce();
+            }
+        });
+        server.createContext("/throttle", exchange -> {
+            String query = exchange.getRequestURI().getQuery();
+            int millis;
+            try {
+                millis = Integer.parseInt(query == null ? "" : query.replaceFirst("^ms=", ""));
+            }
+            catch(NumberFormatException e) {
+                exchange.sendResponseHeaders(400, -1);
+                exchange.close();
+                return;
+            }
+            if(respond(exchange, "POST", "throttle " + millis + " ms\n")) {
+                setMinStepMillis(millis);
+            }
+        });
+        server.start();
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Arrête le serveur HTTP, retire le moniteur du serveur JMX et
+     * reprend la simulation si elle était en pause.
+     */
+    public void close()
+    {
+        if(server != null) {
+            server.stop(0);
+            server = null;
+        }
+        if(name != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+            }
+            catch(JMException e) {
+                // Déjà retiré : rien à faire.
+            }
+            name = null;
+        }
+        resume();
+    }
+
+    /**
+     * Mesure le pas terminé, publie les mesures, puis applique la pause
+     * ou le ralentissement demandés.
+     */
+    public void stepCompleted(int step, Field field)
+    {
+        long now = System.nanoTime();
+        if(lastStepEnd != 0 && step > this.step) {
+            latencies.record(now - lastStepEnd);
+        }
+        this.step = step;
+        if(field != this.field) {
+            observe(field);
+        }
+        if(lastPublish == 0 || step < lastPublishStep
+           || now - lastPublish >= PUBLISH_INTERVAL_MILLIS * 1_000_000L) {
+            double rate = 0;
+            if(lastPublish != 0 && step > lastPublishStep) {
+                rate = (step - lastPublishStep) * 1e9 / (now - lastPublish);
+            }
+            snapshot = new Snapshot(Collections.unmodifiableMap(population()), rate);
+            lastPublish = now;
+            lastPublishStep = step;
+        }
+        int min = minStepMillis;
+        if(min > 0 && lastStepEnd != 0) {
+            long remaining = lastStepEnd + min * 1_000_000L - now;
+            while(remaining > 0) {
+                LockSupport.parkNanos(this, remaining);
+                remaining = lastStepEnd + min * 1_000_000L - System.nanoTime();
+            }
+        }
+        waitWhilePaused();
+        lastStepEnd = System.nanoTime();
+    }
+
+    public void placed(Object animal, int row, int col)
+    {
+        counts[Species.codeOf(animal)]++;
+    }
+
+    public void cleared(Object animal, int row, int col)
+    {
+        counts[Species.codeOf(animal)]--;
+    }
+
+    public int getStep()
+    {
+        return step;
+    }
+
+    public Map<String, Integer> getPopulation()
+    {
+        return snapshot.population;
+    }
+
+    public double getStepsPerSecond()
+    {
+        return snapshot.stepsPerSecond;
+    }
+
+    public double getStepLatencyP50()
+    {
+        return latencies.getPercentile(50) / 1e6;
+    }
+
+    public double getStepLatencyP90()
+    {
+        return latencies.getPercentile(90) / 1e6;
+    }
+
+    public double getStepLatencyP99()
+    {
+        return latencies.getPercentile(99) / 1e6;
+    }
+
+    public boolean isPaused()
+    {
+        return paused;
+    }
+
+    public int getMinStepMillis()
+    {
+        return minStepMillis;
+    }
+
+    public void setMinStepMillis(int millis)
+    {
+        minStepMillis = Math.max(millis, 0);
+    }
+
+    public void pause()
+    {
+        paused = true;
+    }
+
+    public void resume()
+    {
+        paused = false;
+        stepsAllowed.set(0);
+        wakeUp();
+    }
+
+    public void stepOnce()
+    {
+        if(paused) {
+            stepsAllowed.incrementAndGet();
+            wakeUp();
+        }
+    }
+
+    public void resetStatistics()
+    {
+        latencies.reset();
+    }
+
+    /**
+     * Observe un nouveau terrain : compte une fois ses animaux, puis suit
+     * ses modifications.
+     */
+    private void observe(Field field)
+    {
+        if(this.field != null) {
+            this.field.removeListener(this);
+        }
+        this.field = field;
+        Arrays.fill(counts, 0);
+        if(field instanceof CompactField) {
+            ((CompactField) field).countCodes(counts);
+        }
+        else {
+            field.forEachActiveRow((row, fromCol, toCol) -> {
+                for(int col = fromCol; col < toCol; col++) {
+                    counts[field.getCodeAt(row, col)]++;
+                }
+            });
+        }
+        counts[Species.EMPTY] = 0;
+        field.addListener(this);
+    }
+
+    /**
+     * @return Le nombre d'animaux de chaque espèce connue, par nom d'espèce.
+     */
+    private Map<String, Integer> population()
+    {
+        Map<String, Integer> population = new TreeMap<String, Integer>();
+        int species = Species.count();
+        for(int code = Species.EMPTY + 1; code < species; code++) {
+            population.put(Species.nameOf(Species.classOf(code)), counts[code]);
+        }
+        return population;
+    }
+
+    /**
+     * Fait attendre le fil de simulation tant que la pause est demandée,
+     * sauf pour les pas autorisés par stepOnce.
+     */
+    private void waitWhilePaused()
+    {
+        simulationThread = Thread.currentThread();
+        while(paused) {
+            int allowed = stepsAllowed.get();
+            if(allowed > 0 && stepsAllowed.compareAndSet(allowed, allowed - 1)) {
+                return;
+            }
+            LockSupport.park(this);
+        }
+    }
+
+    /**
+     * Réveille le fil de simulation s'il attend.
+     */
+    private void wakeUp()
+    {
+        Thread thread = simulationThread;
+        if(thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Met en forme les mesures pour le serveur HTTP.
+     */
+    private String metrics()
+    {
+        Snapshot current = snapshot;
+        StringBuilder text = new StringBuilder();
+        text.append("simulation_step ").append(step).append('\n');
+        for(Map.Entry<String, Integer> entry : current.population.entrySet()) {
+            text.append("simulation_population{species=\"").append(entry.getKey())
+                .append("\"} ").append(entry.getValue()).append('\n');
+        }
+        text.append("simulation_steps_per_second ").append(current.stepsPerSecond).append('\n');
+        text.append("simulation_step_latency_ms{quantile=\"0.5\"} ").append(getStepLatencyP50()).append('\n');
+        text.append("simulation_step_latency_ms{quantile=\"0.9\"} ").append(getStepLatencyP90()).append('\n');
+        text.append("simulation_step_latency_ms{quantile=\"0.99\"} ").append(getStepLatencyP99()).append('\n');
+        text.append("simulation_paused ").append(paused ? 1 : 0).append('\n');
+        text.append("simulation_min_step_ms ").append(minStepMillis).append('\n');
+        return text.toString();
+    }
+
+    /**
+     * Envoie une réponse texte si la méthode HTTP est celle attendue.
+     * @return true si la requête a été acceptée.
+     */
+    private static boolean respond(HttpExchange exchange, String method, String body) throws IOException
+    {
+        if(!method.equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(405, -1);
+            exchange.close();
+            return false;
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try(OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+        return true;
+    }
+
+    /**
+     * Des mesures publiées par le fil de simulation, immuables.
+     */
+    private static final class Snapshot
+    {
+        private final Map<String, Integer> population;
+        private final double stepsPerSecond;
+
+        private Snapshot(Map<String, Integer> population, double stepsPerSecond)
+        {
+            this.population = population;
+            this.stepsPerSecond = stepsPerSecond;
+        }
+    }
+}
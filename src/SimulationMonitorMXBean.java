@@ -0,0 +1,78 @@
+import java.util.Map;
+
+/**
+ * L'interface de gestion JMX d'une simulation en cours : état, mesures
+ * de performance et commandes de pause et de ralentissement.
+ *
+ * @author Filipe Dias Morais
+ * @version 2026.10.19
+ */
+public interface SimulationMonitorMXBean
+{
+    /**
+     * @return Le dernier pas terminé.
+     */
+    int getStep();
+
+    /**
+     * @return Le nombre d'animaux de chaque espèce, par nom de classe.
+     */
+    Map<String, Integer> getPopulation();
+
+    /**
+     * @return Le nombre de pas par seconde, mesuré sur la dernière période.
+     */
+    double getStepsPerSecond();
+
+    /**
+     * @return La durée médiane d'un pas, en millisecondes.
+     */
+    double getStepLatencyP50();
+
+    /**
+     * @return Le 90e centile de la durée d'un pas, en millisecondes.
+     */
+    double getStepLatencyP90();
+
+    /**
+     * @return Le 99e centile de la durée d'un pas, en millisecondes.
+     */
+    double getStepLatencyP99();
+
+    /**
+     * @return true si la simulation est en pause.
+     */
+    boolean isPaused();
+
+    /**
+     * @return La durée minimale d'un pas, en millisecondes (0 : pas de limite).
+     */
+    int getMinStepMillis();
+
+    /**
+     * Ralentit la simulation en imposant une durée minimale à chaque pas.
+     * @param millis La durée minimale d'un pas, en millisecondes (0 : pas de limite).
+     */
+    void setMinStepMillis(int millis);
+
+    /**
+     * Met la simulation en pause à la fin du pas en cours.
+     */
+    void pause();
+
+    /**
+     * Reprend la simulation.
+     */
+    void resume();
+
+    /**
+     * Exécute un seul pas, puis reste en pause. Sans effet si la
+     * simulation n'est pas en pause.
+     */
+    void stepOnce();
+
+    /**
+     * Remet à zéro les mesures de durée des pas.
+     */
+    void resetStatistics();
+}
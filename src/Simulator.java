@@ -1,7 +1,10 @@
 import java.util.Random;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.ListIterator;
+import java.util.Map;
 import java.awt.Color;
 
 /**
@@ -18,9 +21,11 @@ public class Simulator {
     // La profondeur par défaut de la grille.
     private static final int DEFAULT_DEPTH = 50;
     // La probabilité qu'un renard soit créé à une position donnée sur la grille.
-    private static final double FOX_CREATION_PROBABILITY = 0.02;
+    public static final double FOX_CREATION_PROBABILITY = 0.02;
     // La probabilité qu'un lapin soit créé dans une position de la grille
-    private static final double RABBIT_CREATION_PROBABILITY = 0.08;
+    public static final double RABBIT_CREATION_PROBABILITY = 0.08;
+    // Le nombre de pas entre deux tris des animaux sur un MortonField.
+    private static final int SORT_INTERVAL = 8;
 
     // Répertorie les animaux du terrain. Il existe des listes séparées pour simplifier l'itération.
     // private List<Animal> rabbits;
@@ -29,10 +34,29 @@ public class Simulator {
     private List<Animal> animals;
 
     private Field field;
+    // L'horloge qui programme la mort des animaux.
+    private Lifecycle lifecycle;
+    // Les probabilités de création d'un renard et d'un lapin au peuplement.
+    private double foxCreationProbability;
+    private double rabbitCreationProbability;
     // Le pas actuel de la simulation.
     private int step;
-    // Une représentation graphique de la simulation.
+    // Une représentation graphique de la simulation, null en mode sans affichage.
     private SimulatorView view;
+    // Les statistiques du terrain en mode sans affichage.
+    private FieldStats stats;
+    // Les observateurs de l'avancement de la simulation.
+    private List<SimulationListener> listeners = new ArrayList<SimulationListener>();
+    // Indique que les animaux sont figés et partagés avec une branche (voir fork).
+    private boolean animalsShared;
+    // Les espèces compilées ajoutées au peuplement, avec leur probabilité de création.
+    private Map<CompiledSpecies, Double> extraSpecies = new LinkedHashMap<CompiledSpecies, Double>();
+    // Le nombre de pas entre deux tris des animaux par localité, 0 pour ne jamais trier.
+    private int sortInterval;
+    // La disposition des animaux au peuplement, null pour le peuplement uniforme.
+    private Layout layout;
+    // Le générateur aléatoire du peuplement : le générateur partagé, ou celui de la branche.
+    private Random random;
 
     /**
      * Construit un terrain de simulation avec une taille donnée.
@@ -48,27 +72,114 @@ public class Simulator {
      * @param width La largeur du terrain. Doit être supérieure à zéro.
      */
     public Simulator(int depth, int width) {
-        if (width <= 0 || depth <= 0) {
-            System.out.println("Les dimensions doivent être supérieures à zéro.");
-            System.out.println("Valeurs par défaut utilisées.");
-            depth = DEFAULT_DEPTH;
-            width = DEFAULT_WIDTH;
-        }
+        this(width <= 0 || depth <= 0 ? defaultField() : new Field(depth, width));
+    }
+
+    /**
+     * Construit une simulation sur un terrain donné, par exemple un
+     * CompactField pour les très grands terrains.
+     *
+     * @param field Le terrain de la simulation.
+     */
+    public Simulator(Field field) {
+        this(field, true);
+    }
+
+    /**
+     * Construit une simulation sur un terrain donné, avec ou sans
+     * fenêtre d'affichage. Sans affichage, la simulation peut tourner
+     * sur une machine sans écran (voir FrameExporter pour produire des images).
+     *
+     * @param field   Le terrain de la simulation.
+     * @param visible Si false, aucune fenêtre n'est créée.
+     */
+    public Simulator(Field field, boolean visible) {
+        this(field, visible, FOX_CREATION_PROBABILITY, RABBIT_CREATION_PROBABILITY);
+    }
+
+    /**
+     * Construit une simulation sur un terrain donné, peuplé selon des
+     * probabilités données, par exemple pour un terrain dense ou clairsemé.
+     *
+     * @param field                     Le terrain de la simulation.
+     * @param visible                   Si false, aucune fenêtre n'est créée.
+     * @param foxCreationProbability    La probabilité qu'un renard soit créé à une position.
+     * @param rabbitCreationProbability La probabilité qu'un lapin soit créé à une position sans renard.
+     */
+    public Simulator(Field field, boolean visible, double foxCreationProbability, double rabbitCreationProbability) {
+        this(field, visible, foxCreationProbability, rabbitCreationProbability, null);
+    }
 
+    /**
+     * Construit une simulation sur un terrain donné, peuplé selon une
+     * disposition de départ (voir ScenarioLibrary), par exemple des
+     * hardes de lapins ou un terrain presque plein.
+     *
+     * @param field   Le terrain de la simulation.
+     * @param visible Si false, aucune fenêtre n'est créée.
+     * @param layout  La disposition des animaux à chaque peuplement.
+     */
+    public Simulator(Field field, boolean visible, Layout layout) {
+        this(field, visible, FOX_CREATION_PROBABILITY, RABBIT_CREATION_PROBABILITY, layout);
+    }
+
+    private Simulator(Field field, boolean visible, double foxCreationProbability, double rabbitCreationProbability,
+                      Layout layout) {
+        this.layout = layout;
+        this.foxCreationProbability = foxCreationProbability;
+        this.rabbitCreationProbability = rabbitCreationProbability;
         //  rabbits = new ArrayList<Animal>();
         //  foxes = new ArrayList<Animal>();
         animals = new ArrayList<Animal>();
-        field = new Field(depth, width);
+        this.field = field;
+        lifecycle = new Lifecycle();
+        random = Randomizer.getRandom();
+        sortInterval = field instanceof MortonField ? SORT_INTERVAL : 0;
 
-        // Créer une vue de l'état de chaque position du terrain.
-        view = new SimulatorView(depth, width);
-        view.setColor(Rabbit.class, Color.orange);
-        view.setColor(Fox.class, Color.blue);
+        if (visible) {
+            // Créer une vue de l'état de chaque position du terrain.
+            view = new SimulatorView(field.getDepth(), field.getWidth());
+            view.setColor(Rabbit.class, Color.orange);
+            view.setColor(Fox.class, Color.blue);
+        } else {
+            stats = new FieldStats();
+        }
 
         // Définir un point de départ valide.
         reset();
     }
 
+    /**
+     * Construit une branche d'une simulation, sans affichage, qui
+     * partage son terrain et ses animaux.
+     */
+    private Simulator(Simulator origin, CowField field) {
+        animals = origin.animals;
+        animalsShared = true;
+        this.field = field;
+        step = origin.step;
+        // La branche a sa propre horloge, sans registre des lignées, et son propre générateur.
+        lifecycle = origin.lifecycle.fork(field);
+        field.setLifecycle(lifecycle);
+        random = field.random();
+        foxCreationProbability = origin.foxCreationProbability;
+        rabbitCreationProbability = origin.rabbitCreationProbability;
+        extraSpecies.putAll(origin.extraSpecies);
+        layout = origin.layout;
+        sortInterval = origin.sortInterval;
+        stats = new FieldStats();
+        showStatus();
+    }
+
+    /**
+     * Crée un terrain aux dimensions par défaut, après des dimensions invalides.
+     */
+    private static Field defaultField() {
+        System.out.println("Les dimensions doivent être supérieures à zéro.");
+        System.out.println("Valeurs par défaut utilisées.");
+        return new Field(DEFAULT_DEPTH, DEFAULT_WIDTH);
+    }
+
     /**
      * Exécute la simulation à partir de son état courant pour une période assez longue,
      * par exemple 500 pas.
@@ -84,7 +195,7 @@ public class Simulator {
      * @param numSteps Le nombre de pas à réaliser.
      */
     public void simulate(int numSteps) {
-        for (int step = 1; step <= numSteps && view.isViable(field); step++) {
+        for (int step = 1; step <= numSteps && isViable(); step++) {
             simulateOneStep();
         }
     }
@@ -95,17 +206,53 @@ public class Simulator {
      * renard et de chaque lapin.
      */
     public void simulateOneStep() {
+        // Le terrain qui copie les animaux figés, au premier pas depuis le branchement.
+        CowField adopting = null;
+        if (animalsShared) {
+            // Ne pas modifier la liste partagée avec une branche.
+            animals = new ArrayList<Animal>(animals);
+            adopting = (CowField) field;
+            animalsShared = false;
+        }
+        if (sortInterval > 0 && step % sortInterval == 0) {
+            sortAnimals();
+        }
         step++;
+        // Faire mourir, par lot, les animaux arrivés à l'âge maximal ou affamés.
+        lifecycle.advance();
 
         // Créer une nouvelle liste pour stocker les animaux qui vont naître.
         List<Animal> newAnimals = new ArrayList<Animal>();
-        // Parcourir tous les animaux vivants.
-        for (Iterator<Animal> it = animals.iterator(); it.hasNext(); ) {
-            Animal animal = it.next();
-            animal.act(newAnimals);
-            if (!animal.isAlive()) {
-                it.remove();
+        if (field instanceof ConcurrentField) {
+            // Les animaux agissent en parallèle ; les cellules sont prises atomiquement.
+            // Chaque tranche du parcours a sa liste de nouveau-nés, et chaque fil ses
+            // tampons d'échéances et de modifications, fusionnés après la phase.
+            ConcurrentField concurrent = (ConcurrentField) field;
+            lifecycle.beginParallel();
+            concurrent.beginParallel();
+            newAnimals = animals.parallelStream().collect(ArrayList::new,
+                                                          (born, animal) -> animal.act(born),
+                                                          ArrayList::addAll);
+            concurrent.endParallel();
+            lifecycle.endParallel();
+            animals.removeIf(animal -> !animal.isAlive());
+        } else if (adopting != null) {
+            // Chaque animal figé est remplacé par sa copie au moment d'agir (voir CowField.adopt).
+            for (ListIterator<Animal> it = animals.listIterator(); it.hasNext(); ) {
+                Animal animal = adopting.adopt(it.next());
+                it.set(animal);
+                if (animal != null) {
+                    animal.act(newAnimals);
+                }
+            }
+            animals.removeIf(animal -> animal == null || !animal.isAlive());
+        } else {
+            // Parcourir tous les animaux vivants, puis retirer les morts en un
+            // seul passage : un retrait par mort serait quadratique sur un grand terrain.
+            for (Animal animal : animals) {
+                animal.act(newAnimals);
             }
+            animals.removeIf(animal -> !animal.isAlive());
         }
 
         /*
@@ -137,7 +284,8 @@ public class Simulator {
 
         animals.addAll(newAnimals);
 
-        view.showStatus(step, field);
+        showStatus();
+        fireStepCompleted();
     }
 
     /**
@@ -148,33 +296,310 @@ public class Simulator {
         //   rabbits.clear();
         //  foxes.clear();
 
-        animals.clear();
+        if (animalsShared) {
+            // Ne pas vider la liste partagée avec une branche.
+            animals = new ArrayList<Animal>();
+            animalsShared = false;
+        } else {
+            animals.clear();
+        }
+        lifecycle.reset();
         populate();
 
         // Montrer l'état de départ.
-        view.showStatus(step, field);
+        showStatus();
+        fireStepCompleted();
+    }
+
+    /**
+     * Crée une branche de la simulation au pas courant, en temps
+     * constant, par exemple pour comparer plusieurs suites possibles.
+     * La base du générateur de la branche est tirée du générateur de
+     * cette simulation (voir fork(long)).
+     *
+     * @return La nouvelle branche.
+     * @throws UnsupportedOperationException Si le terrain n'est pas un CowField.
+     */
+    public Simulator fork() {
+        return fork(random.nextLong());
+    }
+
+    /**
+     * Crée une branche de la simulation au pas courant, en temps
+     * constant. Le terrain doit être un CowField : la branche partage
+     * ses tuiles et ne copie que celles qu'elle lit ou modifie, avec
+     * leurs animaux (voir CowField). Les deux simulations prennent une
+     * nouvelle horloge ; celle de la branche n'a pas de registre des
+     * lignées. La branche tire ses actions d'un générateur propre,
+     * créé à partir de la base donnée : elle se rejoue à l'identique,
+     * quel que soit l'ordre dans lequel les simulations avancent. Elle
+     * n'a ni affichage ni observateurs.
+     *
+     * @param seed La base du générateur aléatoire de la branche.
+     * @return La nouvelle branche.
+     * @throws UnsupportedOperationException Si le terrain n'est pas un CowField.
+     */
+    public Simulator fork(long seed) {
+        if (!(field instanceof CowField)) {
+            throw new UnsupportedOperationException("Seul un CowField peut être partagé entre des branches");
+        }
+        CowField shared = (CowField) field;
+        Simulator branch = new Simulator(this, shared.fork(seed));
+        // Les animaux figés gardent l'ancienne horloge ; cette simulation prend la sienne.
+        Lifecycle forked = lifecycle.fork(shared);
+        forked.setLineageRecorder(lifecycle.getLineageRecorder());
+        lifecycle = forked;
+        shared.setLifecycle(lifecycle);
+        animalsShared = true;
+        return branch;
+    }
+
+    /**
+     * Ajoute une espèce compilée (voir SpeciesCompiler) à la simulation.
+     * Ses animaux sont créés tout de suite dans des positions libres, puis
+     * à chaque réinitialisation, après les renards et les lapins.
+     *
+     * @param species             L'espèce.
+     * @param creationProbability La probabilité qu'un animal soit créé à une position libre.
+     * @param color               Sa couleur à l'affichage.
+     */
+    public void addSpecies(CompiledSpecies species, double creationProbability, Color color) {
+        extraSpecies.put(species, creationProbability);
+        if (view != null) {
+            view.setColor(species.getSpeciesClass(), color);
+        }
+        populate(species, creationProbability);
+        showStatus();
+    }
+
+    /**
+     * Ajoute un animal déjà placé sur le terrain de la simulation, par
+     * exemple venu d'une autre représentation du monde (voir HybridWorld).
+     * Il agira dès le pas suivant.
+     *
+     * @param animal L'animal, vivant et placé sur le terrain de la simulation.
+     * @throws IllegalArgumentException Si l'animal n'est pas sur ce terrain.
+     * @throws IllegalStateException    Si les animaux sont encore partagés avec une branche.
+     */
+    public void addAnimal(Animal animal) {
+        if (!animal.isAlive() || animal.getField() != field) {
+            throw new IllegalArgumentException("L'animal n'est pas placé sur le terrain de la simulation");
+        }
+        if (animalsShared) {
+            throw new IllegalStateException("Les animaux sont partagés avec une branche jusqu'au prochain pas");
+        }
+        animals.add(animal);
+    }
+
+    /**
+     * Fixe la fréquence du tri des animaux selon la clé de localité de
+     * leur position (voir Field.getLocalityKey). Les animaux agissent
+     * alors dans l'ordre de leurs cellules en mémoire. Le tri change
+     * l'ordre des actions, donc la suite de la simulation ; il est fait
+     * par défaut sur un MortonField seulement.
+     *
+     * @param sortInterval Le nombre de pas entre deux tris, 0 pour ne jamais trier.
+     */
+    public void setSortInterval(int sortInterval) {
+        if (sortInterval < 0) {
+            throw new IllegalArgumentException("Intervalle de tri négatif : " + sortInterval);
+        }
+        this.sortInterval = sortInterval;
+    }
+
+    /**
+     * Ajoute un observateur de l'avancement de la simulation.
+     *
+     * @param listener L'observateur à prévenir à la fin de chaque pas.
+     */
+    public void addSimulationListener(SimulationListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Retire un observateur de l'avancement de la simulation.
+     *
+     * @param listener L'observateur à retirer.
+     */
+    public void removeSimulationListener(SimulationListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Enregistre la suite de la simulation dans un journal. Le journal
+     * commence par une image complète de l'état courant.
+     *
+     * @param log Le journal dans lequel enregistrer les pas.
+     */
+    public void recordRun(RunLog log) {
+        field.addListener(log);
+        addSimulationListener(log);
+        log.stepCompleted(step, field);
+    }
+
+    /**
+     * Enregistre la vie de chaque animal dans un registre des lignées :
+     * les animaux vivants y reçoivent une fiche sans parent, puis chaque
+     * animal qui naît dans la simulation y reçoit la sienne.
+     *
+     * @param recorder Le registre des lignées.
+     */
+    public void recordLineage(LineageRecorder recorder) {
+        lifecycle.setLineageRecorder(recorder);
+        for (Animal animal : animals) {
+            animal.recordLineage(recorder);
+        }
+    }
+
+    /**
+     * @return Le terrain de la simulation.
+     */
+    public Field getField() {
+        return field;
+    }
+
+    /**
+     * @return L'horloge qui programme la mort des animaux de la simulation.
+     */
+    public Lifecycle getLifecycle() {
+        return lifecycle;
+    }
+
+    /**
+     * @return Le pas actuel de la simulation.
+     */
+    public int getStep() {
+        return step;
+    }
+
+    /**
+     * @return Le nombre d'animaux vivants qui agiront au prochain pas.
+     */
+    public int getAnimalCount() {
+        return animals.size();
+    }
+
+    /**
+     * Détermine si la simulation peut continuer.
+     *
+     * @return true s'il y a plus d'une espèce vivante.
+     */
+    public boolean isViable() {
+        if (view != null) {
+            return view.isViable(field);
+        }
+        return stats.isViable(field);
+    }
+
+    /**
+     * Montre l'état courant, ou invalide les statistiques en mode sans affichage.
+     */
+    private void showStatus() {
+        if (view != null) {
+            view.showStatus(step, field);
+        } else {
+            stats.reset();
+        }
+    }
+
+    /**
+     * Trie les animaux vivants selon la clé de localité de leur position.
+     * Les clés et les index sont triés ensemble dans un tableau de long,
+     * sans comparateur ni objet intermédiaire ; les animaux morts depuis
+     * leur dernière action sont retirés au passage.
+     */
+    private void sortAnimals() {
+        long[] keys = new long[animals.size()];
+        int count = 0;
+        for (int i = 0; i < keys.length; i++) {
+            Animal animal = animals.get(i);
+            if (animal.isAlive()) {
+                Location location = animal.getLocation();
+                long key = field.getLocalityKey(location.getRow(), location.getCol());
+                keys[count++] = key << 32 | i;
+            }
+        }
+        Arrays.sort(keys, 0, count);
+        List<Animal> sorted = new ArrayList<Animal>(count);
+        for (int i = 0; i < count; i++) {
+            sorted.add(animals.get((int) keys[i]));
+        }
+        animals = sorted;
     }
 
     /**
-     * Peuple le terrain avec des renards et des lapins.
+     * Prévient les observateurs de la fin du pas courant.
+     */
+    private void fireStepCompleted() {
+        for (SimulationListener listener : listeners) {
+            listener.stepCompleted(step, field);
+        }
+    }
+
+    /**
+     * Peuple le terrain avec des renards, des lapins et les espèces ajoutées.
      */
     private void populate() {
-        Random rand = Randomizer.getRandom();
+        Random rand = random;
         field.clear();
+        if (layout != null) {
+            layout.populate(field, lifecycle, animals, rand);
+        } else {
+            for (int row = 0; row < field.getDepth(); row++) {
+                for (int col = 0; col < field.getWidth(); col++) {
+                    if (rand.nextDouble() <= foxCreationProbability) {
+                        Location location = new Location(row, col);
+                        Fox fox = new Fox(true, field, location, lifecycle);
+                        // foxes.add(fox);
+                        animals.add(fox);
+                    } else if (rand.nextDouble() <= rabbitCreationProbability) {
+                        Location location = new Location(row, col);
+                        Rabbit rabbit = new Rabbit(true, field, location, lifecycle);
+                        // rabbits.add(rabbit);
+                        animals.add(rabbit);
+                    }
+                    // else laisser la position vide.
+                }
+            }
+        }
+        for (Map.Entry<CompiledSpecies, Double> entry : extraSpecies.entrySet()) {
+            populate(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Peuple les positions libres du terrain avec une espèce compilée.
+     * Comme dans Layout.scatter, les cellules peuplées sont atteintes
+     * par des sauts de longueur géométrique ; les sauts ne comptent que
+     * les cellules libres, lues dans le masque de chaque ligne (voir
+     * Field.freeMask), si bien que le coût dépend du nombre de lignes et
+     * d'animaux créés, et non de celui des cellules.
+     */
+    private void populate(CompiledSpecies species, double creationProbability) {
+        if (creationProbability <= 0) {
+            return;
+        }
+        Random rand = random;
+        double failure = Math.log1p(-Math.min(creationProbability, 1));
+        long[] free = new long[(field.getWidth() + 63) >>> 6];
+        // Le nombre de cellules libres à passer avant la prochaine cellule peuplée.
+        long skip = Layout.skip(rand, failure);
         for (int row = 0; row < field.getDepth(); row++) {
-            for (int col = 0; col < field.getWidth(); col++) {
-                if (rand.nextDouble() <= FOX_CREATION_PROBABILITY) {
-                    Location location = new Location(row, col);
-                    Fox fox = new Fox(true, field, location);
-                    // foxes.add(fox);
-                    animals.add(fox);
-                } else if (rand.nextDouble() <= RABBIT_CREATION_PROBABILITY) {
-                    Location location = new Location(row, col);
-                    Rabbit rabbit = new Rabbit(true, field, location);
-                    // rabbits.add(rabbit);
-                    animals.add(rabbit);
+            field.freeMask(row, free);
+            for (int word = 0; word < free.length; word++) {
+                long bits = free[word];
+                int count = Long.bitCount(bits);
+                while (skip < count) {
+                    for (long passed = 0; passed < skip; passed++) {
+                        bits &= bits - 1;
+                    }
+                    int col = word << 6 | Long.numberOfTrailingZeros(bits);
+                    animals.add(species.create(true, field, new Location(row, col), lifecycle));
+                    bits &= bits - 1;
+                    count -= (int) skip + 1;
+                    skip = Layout.skip(rand, failure);
                 }
-                // else laisser la position vide.
+                skip -= count;
             }
         }
     }
@@ -1,6 +1,9 @@
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import javax.swing.*;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -94,20 +97,7 @@ public class SimulatorView extends JFrame {
         stepLabel.setText(STEP_PREFIX + step);
         stats.reset();
 
-        fieldView.preparePaint();
-
-        for (int row = 0; row < field.getDepth(); row++) {
-            for (int col = 0; col < field.getWidth(); col++) {
-                Object animal = field.getObjectAt(row, col);
-                if (animal != null) {
-                    stats.incrementCount(animal.getClass());
-                    fieldView.drawMark(col, row, getColor(animal.getClass()));
-                } else {
-                    fieldView.drawMark(col, row, EMPTY_COLOR);
-                }
-            }
-        }
-        stats.countFinished();
+        fieldView.showField(field);
 
         population.setText(POPULATION_PREFIX + stats.getPopulationDetails(field));
         fieldView.repaint();
@@ -129,15 +119,52 @@ public class SimulatorView extends JFrame {
      * Ce composant affiche le terrain.
      * Il s'agit de code IUG assez avancé - vous pouvez l'ignorer
      * dans vos projets si vous le voulez.
+     *
+     * La vue montre une fenêtre sur le terrain : la molette zoome autour
+     * du curseur, un glissement déplace la vue et un double clic revient
+     * au terrain entier. De près, seules les cellules visibles sont
+     * dessinées ; de loin, quand une cellule fait moins d'un pixel, la
+     * vue dessine une image de densité construite à partir des blocs
+     * d'une DensityGrid. Le coût d'un affichage dépend ainsi de la taille
+     * de l'écran et non de celle du terrain. La grille n'observe le
+     * terrain que tant que la vue est éloignée : revenir au détail la
+     * désabonne, et elle est recomptée en s'éloignant à nouveau, au pas
+     * suivant de la simulation ; d'ici là, la vue montre la dernière
+     * image de densité, ou un fond vide.
      */
     private class FieldView extends JPanel {
         private final int GRID_VIEW_SCALING_FACTOR = 6;
+        // La taille maximale souhaitée de la vue, en pixels.
+        private final int MAX_VIEW_SIZE = 800;
+        // L'échelle (pixels par cellule) à partir de laquelle chaque cellule est dessinée.
+        private final double DETAIL_SCALE = 1.0;
+        // L'échelle maximale, en pixels par cellule.
+        private final double MAX_SCALE = 64.0;
+        // Le facteur de zoom d'un cran de molette.
+        private final double ZOOM_STEP = 1.25;
+        // Le nombre maximal de blocs de densité par côté du terrain.
+        private final int MAX_DENSITY_BLOCKS = 512;
 
         private int gridWidth, gridHeight;
-        private int xScale, yScale;
         Dimension size;
         private Graphics g;
         private Image fieldImage;
+        // L'échelle, en pixels par cellule.
+        private double scale;
+        // La position (colonne, ligne) du coin supérieur gauche de la vue.
+        private double originX, originY;
+        // Indique que la vue montre le terrain entier et suit la taille du composant.
+        private boolean fitted = true;
+        // Le point de départ d'un glissement.
+        private Point dragStart;
+        // Le terrain du dernier affichage.
+        private Field field;
+        // La grille de densité du terrain, abonnée à ses modifications
+        // tant que la vue est en dessous de l'échelle de détail.
+        private DensityGrid density;
+        // L'image de densité, un pixel par bloc, et ses pixels.
+        private BufferedImage densityImage;
+        private int[] densityPixels;
 
         /**
          * Crée un nouveau composant FieldView.
@@ -146,43 +173,297 @@ public class SimulatorView extends JFrame {
             gridHeight = height;
             gridWidth = width;
             size = new Dimension(0, 0);
+
+            MouseAdapter mouse = new MouseAdapter() {
+                public void mousePressed(MouseEvent e) {
+                    dragStart = e.getPoint();
+                }
+
+                public void mouseDragged(MouseEvent e) {
+                    if (field == null) {
+                        return;
+                    }
+                    Point point = e.getPoint();
+                    moveTo(originX - (point.x - dragStart.x) / scale,
+                           originY - (point.y - dragStart.y) / scale, scale);
+                    dragStart = point;
+                }
+
+                public void mouseWheelMoved(MouseWheelEvent e) {
+                    if (field == null) {
+                        return;
+                    }
+                    // Garder sous le curseur la même position du terrain.
+                    double newScale = clampScale(scale * Math.pow(ZOOM_STEP, -e.getPreciseWheelRotation()));
+                    moveTo(originX + e.getX() / scale - e.getX() / newScale,
+                           originY + e.getY() / scale - e.getY() / newScale, newScale);
+                }
+
+                public void mouseClicked(MouseEvent e) {
+                    if (e.getClickCount() == 2) {
+                        fitted = true;
+                        redraw();
+                    }
+                }
+            };
+            addMouseListener(mouse);
+            addMouseMotionListener(mouse);
+            addMouseWheelListener(mouse);
+            addComponentListener(new ComponentAdapter() {
+                public void componentResized(ComponentEvent e) {
+                    redraw();
+                }
+            });
         }
 
         /**
          * Indique au gestionnaire d'IUG la taille que nous souhaitons avoir.
          */
         public Dimension getPreferredSize() {
-            return new Dimension(gridWidth * GRID_VIEW_SCALING_FACTOR,
-                    gridHeight * GRID_VIEW_SCALING_FACTOR);
+            double preferredScale = Math.min(GRID_VIEW_SCALING_FACTOR,
+                    MAX_VIEW_SIZE / (double) Math.max(gridWidth, gridHeight));
+            return new Dimension((int) Math.ceil(gridWidth * preferredScale),
+                    (int) Math.ceil(gridHeight * preferredScale));
+        }
+
+        /**
+         * Dessine l'état d'un terrain dans l'image interne. Appelée par
+         * le fil de simulation à chaque pas.
+         */
+        public synchronized void showField(Field field) {
+            if (field != this.field) {
+                detachDensity();
+                // L'image de densité était celle d'un autre terrain.
+                densityImage = null;
+                this.field = field;
+            }
+            if (preparePaint()) {
+                if (scale < DETAIL_SCALE && density == null) {
+                    density = new DensityGrid(field, densityBlockSize());
+                } else if (scale >= DETAIL_SCALE) {
+                    // De près, la grille ne sert pas : ne plus payer chaque déplacement.
+                    detachDensity();
+                }
+                draw();
+            }
+        }
+
+        /**
+         * Désabonne la grille de densité du terrain. Appelée par le fil
+         * de simulation seulement, qui est le seul à modifier le terrain ;
+         * la grille est reconstruite au prochain affichage de loin.
+         */
+        private void detachDensity() {
+            if (density != null) {
+                field.removeListener(density);
+                density = null;
+            }
+        }
+
+        /**
+         * Redessine le dernier terrain affiché après un changement de la
+         * vue. Appelée par le fil de l'interface : le terrain peut changer
+         * pendant le dessin, l'image est alors corrigée au pas suivant.
+         * La grille de densité n'est (dés)abonnée qu'au pas suivant ;
+         * d'ici là, une vue éloignée sans grille montre la dernière image
+         * de densité, ou un fond vide : elle ne parcourt jamais les
+         * cellules, dont le nombre ne dépend que de la taille du terrain.
+         */
+        private synchronized void redraw() {
+            if (field != null && preparePaint()) {
+                draw();
+                repaint();
+            }
         }
 
         /**
          * Prépare un nouvel affichage. Comme le composant a pu être
-         * redimensionné, recalcule le facteur d'échelle.
+         * redimensionné, recrée l'image interne et recalcule l'échelle.
+         *
+         * @return false si le composant n'a pas encore de taille.
          */
-        public void preparePaint() {
-            if (!size.equals(getSize())) {  // si la taille a changé...
+        private boolean preparePaint() {
+            if (fieldImage == null || !size.equals(getSize())) {  // si la taille a changé...
                 size = getSize();
-                fieldImage = fieldView.createImage(size.width, size.height);
+                fieldImage = null;
+                if (size.width > 0 && size.height > 0) {
+                    fieldImage = createImage(size.width, size.height);
+                }
+                if (fieldImage == null) {
+                    return false;
+                }
                 g = fieldImage.getGraphics();
+            }
+            if (fitted) {
+                scale = minScale();
+                originX = 0;
+                originY = 0;
+            } else {
+                moveWithin(originX, originY, clampScale(scale));
+            }
+            return true;
+        }
+
+        /**
+         * @return L'échelle à laquelle le terrain entier occupe la vue.
+         */
+        private double minScale() {
+            return Math.min(size.width / (double) gridWidth, size.height / (double) gridHeight);
+        }
+
+        /**
+         * @return L'échelle donnée, limitée aux échelles permises.
+         */
+        private double clampScale(double newScale) {
+            return Math.max(minScale(), Math.min(MAX_SCALE, newScale));
+        }
+
+        /**
+         * Déplace la vue à la demande de l'utilisateur et la redessine.
+         */
+        private void moveTo(double x, double y, double newScale) {
+            fitted = false;
+            moveWithin(x, y, newScale);
+            redraw();
+        }
 
-                xScale = size.width / gridWidth;
-                if (xScale < 1) {
-                    xScale = GRID_VIEW_SCALING_FACTOR;
+        /**
+         * Change la position et l'échelle de la vue, sans sortir du terrain.
+         */
+        private void moveWithin(double x, double y, double newScale) {
+            scale = newScale;
+            originX = Math.max(0, Math.min(x, gridWidth - size.width / scale));
+            originY = Math.max(0, Math.min(y, gridHeight - size.height / scale));
+        }
+
+        /**
+         * Dessine la partie visible du terrain dans l'image interne.
+         */
+        private void draw() {
+            g.setColor(getBackground());
+            g.fillRect(0, 0, size.width, size.height);
+            if (scale >= DETAIL_SCALE) {
+                drawCells();
+            } else {
+                if (density != null) {
+                    updateDensity();
                 }
-                yScale = size.height / gridHeight;
-                if (yScale < 1) {
-                    yScale = GRID_VIEW_SCALING_FACTOR;
+                drawDensity();
+            }
+        }
+
+        /**
+         * @return Le côté d'un bloc de densité, pour au plus
+         * MAX_DENSITY_BLOCKS blocs par côté du terrain.
+         */
+        private int densityBlockSize() {
+            return (Math.max(gridWidth, gridHeight) + MAX_DENSITY_BLOCKS - 1) / MAX_DENSITY_BLOCKS;
+        }
+
+        /**
+         * Colorie chaque cellule visible selon son contenu.
+         */
+        private void drawCells() {
+            int fromCol = (int) originX;
+            int toCol = Math.min(gridWidth, (int) Math.ceil(originX + size.width / scale));
+            int fromRow = (int) originY;
+            int toRow = Math.min(gridHeight, (int) Math.ceil(originY + size.height / scale));
+            // Un pixel de séparation entre les cellules, si elles sont assez grandes.
+            int gap = scale >= 4 ? 1 : 0;
+            for (int row = fromRow; row < toRow; row++) {
+                int y = (int) ((row - originY) * scale);
+                int height = (int) ((row + 1 - originY) * scale) - y - gap;
+                for (int col = fromCol; col < toCol; col++) {
+                    int x = (int) ((col - originX) * scale);
+                    int width = (int) ((col + 1 - originX) * scale) - x - gap;
+                    Class species = field.getSpeciesAt(row, col);
+                    g.setColor(species == null ? EMPTY_COLOR : getColor(species));
+                    g.fillRect(x, y, width, height);
                 }
             }
         }
 
         /**
-         * Colorie une position de la grille du terrain avec une couleur donnée.
+         * Recalcule, dans l'image de densité, les blocs visibles de la
+         * grille, un pixel par bloc. La couleur d'un bloc mélange les
+         * couleurs des espèces selon leur part des animaux du bloc, sur le
+         * fond vide selon l'occupation du bloc.
+         */
+        private void updateDensity() {
+            int blockSize = density.getBlockSize();
+            int blockRows = density.getBlockRows();
+            int blockCols = density.getBlockCols();
+            if (densityImage == null) {
+                densityImage = new BufferedImage(blockCols, blockRows, BufferedImage.TYPE_INT_RGB);
+                densityPixels = ((DataBufferInt) densityImage.getRaster().getDataBuffer()).getData();
+                // Les blocs jamais calculés restent du fond de la vue.
+                Arrays.fill(densityPixels, getBackground().getRGB());
+            }
+            int fromCol = (int) (originX / blockSize);
+            int toCol = Math.min(blockCols, (int) Math.ceil((originX + size.width / scale) / blockSize));
+            int fromRow = (int) (originY / blockSize);
+            int toRow = Math.min(blockRows, (int) Math.ceil((originY + size.height / scale) / blockSize));
+
+            int species = Species.count();
+            Color[] speciesColors = new Color[species];
+            for (int code = 1; code < species; code++) {
+                speciesColors[code] = getColor(Species.classOf(code));
+            }
+            for (int row = fromRow; row < toRow; row++) {
+                int cellRows = Math.min(blockSize, gridHeight - row * blockSize);
+                for (int col = fromCol; col < toCol; col++) {
+                    int cells = cellRows * Math.min(blockSize, gridWidth - col * blockSize);
+                    int total = 0;
+                    double red = 0, green = 0, blue = 0;
+                    for (int code = 1; code < species; code++) {
+                        int count = density.getBlockCount(code, row, col);
+                        if (count > 0) {
+                            total += count;
+                            red += count * speciesColors[code].getRed();
+                            green += count * speciesColors[code].getGreen();
+                            blue += count * speciesColors[code].getBlue();
+                        }
+                    }
+                    int rgb = EMPTY_COLOR.getRGB();
+                    if (total > 0) {
+                        // La racine rend visibles les blocs peu peuplés.
+                        double weight = Math.sqrt(Math.min(1.0, total / (double) cells));
+                        rgb = mix(EMPTY_COLOR.getRed(), red / total, weight) << 16
+                            | mix(EMPTY_COLOR.getGreen(), green / total, weight) << 8
+                            | mix(EMPTY_COLOR.getBlue(), blue / total, weight);
+                    }
+                    densityPixels[row * blockCols + col] = rgb;
+                }
+            }
+        }
+
+        /**
+         * Met à l'échelle de la vue la partie visible de l'image de
+         * densité, telle que le dernier pas l'a calculée ; sans image, la
+         * vue reste vide.
+         */
+        private void drawDensity() {
+            if (densityImage == null) {
+                return;
+            }
+            int blockSize = densityBlockSize();
+            int fromCol = (int) (originX / blockSize);
+            int toCol = Math.min(densityImage.getWidth(), (int) Math.ceil((originX + size.width / scale) / blockSize));
+            int fromRow = (int) (originY / blockSize);
+            int toRow = Math.min(densityImage.getHeight(), (int) Math.ceil((originY + size.height / scale) / blockSize));
+            g.drawImage(densityImage,
+                    (int) ((fromCol * blockSize - originX) * scale),
+                    (int) ((fromRow * blockSize - originY) * scale),
+                    (int) ((toCol * blockSize - originX) * scale),
+                    (int) ((toRow * blockSize - originY) * scale),
+                    fromCol, fromRow, toCol, toRow, null);
+        }
+
+        /**
+         * @return La composante de couleur entre le fond et la couleur des animaux.
          */
-        public void drawMark(int x, int y, Color color) {
-            g.setColor(color);
-            g.fillRect(x * xScale, y * yScale, xScale - 1, yScale - 1);
+        private int mix(int background, double animals, double weight) {
+            return (int) Math.round(background * (1 - weight) + animals * weight);
         }
 
         /**
@@ -0,0 +1,131 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Attribue un code d'espèce compact (un octet) à chaque classe d'animaux.
+ * Le code 0 est réservé aux cellules vides. Les lapins et les renards
+ * ont des codes fixes afin que les données enregistrées restent
+ * comparables d'une exécution à l'autre ; les autres classes reçoivent
+ * un code à leur première utilisation.
+ *
+ * @author Filipe Dias Morais
+ * @version 2026.10.19
+ */
+public final class Species
+{
+    // Code d'une cellule vide.
+    public static final int EMPTY = 0;
+    // Code fixe des lapins.
+    public static final int RABBIT = 1;
+    // Code fixe des renards.
+    public static final int FOX = 2;
+    // Nombre maximal d'espèces représentables sur un octet (code vide compris).
+    public static final int MAX_CODES = 256;
+
+    // Les classes enregistrées, indexées par leur code. Le tableau n'est
+    // jamais modifié : un enregistrement le remplace par une copie
+    // agrandie, si bien que classOf le lit sans verrou.
+    private static volatile Class[] classes = { null, Rabbit.class, Fox.class };
+    // Le nom des espèces compilées, dont les classes n'en ont pas d'utilisable.
+    private static final Map<Class, String> names = new HashMap<Class, String>();
+    // Cache du code de chaque classe, sans recherche dans une table.
+    private static final ClassValue<Integer> codes = new ClassValue<Integer>() {
+        protected Integer computeValue(Class<?> type)
+        {
+            return register(type);
+        }
+    };
+
+    private Species()
+    {
+    }
+
+    /**
+     * Renvoie le code d'une classe d'animaux, en l'enregistrant au besoin.
+     * @param animalClass La classe de l'animal, éventuellement null.
+     * @return Le code de l'espèce, entre 1 et 255, EMPTY si la classe est null.
+     */
+    public static int codeOf(Class animalClass)
+    {
+        return animalClass == null ? EMPTY : codes.get(animalClass);
+    }
+
+    /**
+     * Renvoie le code de l'espèce d'un occupant de cellule.
+     * @param animal L'occupant, éventuellement null.
+     * @return Le code de l'espèce, EMPTY si l'occupant est null.
+     */
+    public static int codeOf(Object animal)
+    {
+        return animal == null ? EMPTY : codes.get(animal.getClass());
+    }
+
+    /**
+     * Renvoie la classe associée à un code d'espèce.
+     * @param code Le code de l'espèce.
+     * @return La classe de l'espèce, null pour EMPTY ou un code inconnu.
+     */
+    public static Class classOf(int code)
+    {
+        Class[] registered = classes;
+        if(code <= EMPTY || code >= registered.length) {
+            return null;
+        }
+        return registered[code];
+    }
+
+    /**
+     * Renvoie le nom d'une espèce : celui qu'elle a reçu à sa compilation
+     * (voir SpeciesCompiler), sinon celui de sa classe, sans le suffixe
+     * que porte le nom d'une classe cachée.
+     * @param animalClass La classe de l'animal.
+     * @return Le nom de l'espèce.
+     */
+    public static synchronized String nameOf(Class animalClass)
+    {
+        String name = names.get(animalClass);
+        if(name != null) {
+            return name;
+        }
+        name = animalClass.getName();
+        int suffix = name.indexOf('/');
+        return suffix < 0 ? name : name.substring(0, suffix);
+    }
+
+    /**
+     * Donne son nom à une espèce compilée.
+     * @param animalClass La classe de l'espèce.
+     * @param name Son nom.
+     */
+    static synchronized void setName(Class animalClass, String name)
+    {
+        names.put(animalClass, name);
+    }
+
+    /**
+     * @return Le nombre de codes attribués, code vide compris.
+     */
+    public static int count()
+    {
+        return classes.length;
+    }
+
+    /**
+     * Enregistre une classe et lui attribue le prochain code libre.
+     */
+    private static synchronized int register(Class animalClass)
+    {
+        int code = Arrays.asList(classes).indexOf(animalClass);
+        if(code > EMPTY) {
+            return code;
+        }
+        if(classes.length >= MAX_CODES) {
+            throw new IllegalStateException("Trop d'espèces pour un code sur un octet : " + animalClass.getName());
+        }
+        Class[] registered = Arrays.copyOf(classes, classes.length + 1);
+        registered[classes.length] = animalClass;
+        classes = registered;
+        return registered.length - 1;
+    }
+}
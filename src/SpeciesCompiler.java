@@ -0,0 +1,77 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Compile la description d'une espèce (SpeciesSpec) en une classe
+ * d'animaux, au chargement, sans sous-classe écrite à la main.
+ *
+ * Chaque espèce est une copie de la classe modèle SpeciesKernel,
+ * définie comme classe cachée (Lookup.defineHiddenClassWithClassData)
+ * avec la description de l'espèce pour donnée de classe. La copie lit
+ * ses paramètres dans des constantes statiques qui lui sont propres :
+ * pour le compilateur à la volée, une espèce compilée est une classe
+ * comme Fox, dont les constantes sont propagées et les méthodes
+ * intégrées à l'appelant. Une espèce compilée peut en chasser une
+ * autre, sa classe servant de proie.
+ *
+ * Le code du modèle est celui de l'arbre, lu une fois : il n'y a ni
+ * code source produit ni compilateur Java à l'exécution, un JRE suffit.
+ *
+ * @author Filipe Dias Morais
+ * @version 2026.10.19
+ */
+public final class SpeciesCompiler
+{
+    // Le type du constructeur des classes produites.
+    private static final MethodType CONSTRUCTOR_TYPE =
+        MethodType.methodType(void.class, boolean.class, Field.class, Location.class, Lifecycle.class);
+    // Le fichier de classe du modèle, lu au premier usage.
+    private static byte[] template;
+
+    private SpeciesCompiler()
+    {
+    }
+
+    /**
+     * Compile une espèce.
+     * @param spec La description de l'espèce.
+     * @return L'espèce compilée, qui crée ses animaux.
+     * @throws IllegalStateException Si la classe de l'espèce ne peut pas
+     *         être définie.
+     */
+    public static CompiledSpecies compile(SpeciesSpec spec)
+    {
+        try {
+            // La classe cachée est définie dans le paquetage de ce compilateur, celui d'Animal.
+            MethodHandles.Lookup species = MethodHandles.lookup().defineHiddenClassWithClassData(template(), spec, true);
+            Species.setName(species.lookupClass(), spec.getName());
+            MethodHandle constructor = species.findConstructor(species.lookupClass(), CONSTRUCTOR_TYPE);
+            return new CompiledSpecies(spec, species.lookupClass(), constructor);
+        }
+        catch(IllegalAccessException | NoSuchMethodException e) {
+            throw new IllegalStateException("Impossible de définir l'espèce " + spec.getName(), e);
+        }
+    }
+
+    /**
+     * @return Le fichier de classe de SpeciesKernel.
+     */
+    private static synchronized byte[] template()
+    {
+        if(template == null) {
+            try(InputStream in = SpeciesKernel.class.getResourceAsStream("SpeciesKernel.class")) {
+                if(in == null) {
+                    throw new IllegalStateException("Fichier de classe de SpeciesKernel introuvable");
+                }
+                template = in.readAllBytes();
+            }
+            catch(IOException e) {
+                throw new IllegalStateException("Lecture de SpeciesKernel impossible", e);
+            }
+        }
+        return template;
+    }
+}
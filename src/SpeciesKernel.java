@@ -0,0 +1,99 @@
+import java.lang.invoke.MethodHandles;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Le modèle des classes d'espèces compilées (voir SpeciesCompiler).
+ *
+ * Cette classe n'est jamais utilisée telle quelle : chaque espèce en est
+ * une copie, définie comme classe cachée avec sa description pour donnée
+ * de classe. Les paramètres de l'espèce sont lus une fois, dans des
+ * constantes statiques propres à la copie ; le pas commun des animaux
+ * (voir Animal.step), appelé avec ces constantes, est spécialisé pour
+ * chaque espèce par le compilateur à la volée, comme celui de Fox.
+ *
+ * @author Filipe Dias Morais
+ * @version 2026.10.19
+ */
+final class SpeciesKernel extends Animal
+{
+    // La description de l'espèce, donnée de la classe cachée.
+    private static final SpeciesSpec SPEC = spec();
+    private static final int BREEDING_AGE = SPEC.getBreedingAge();
+    private static final int MAX_AGE = SPEC.getMaxAge();
+    private static final double BREEDING_PROBABILITY = SPEC.getBreedingProbability();
+    private static final int MAX_LITTER_SIZE = SPEC.getMaxLitterSize();
+    private static final Class PREY = SPEC.getPrey();
+    private static final int FOOD_VALUE = SPEC.getFoodValue();
+
+    /**
+     * Crée un animal de l'espèce, nouveau-né ou avec un âge (et une
+     * faim) aléatoires.
+     * @param randomAge Si true, l'animal a un âge et une faim aléatoires.
+     * @param field Le terrain.
+     * @param location La position, qui doit être libre.
+     * @param lifecycle L'horloge de la simulation.
+     */
+    SpeciesKernel(boolean randomAge, Field field, Location location, Lifecycle lifecycle)
+    {
+        super(field, location, lifecycle);
+        if(randomAge) {
+            Random random = getField().random();
+            setAge(random.nextInt(MAX_AGE));
+            if(FOOD_VALUE > 0) {
+                scheduleDeath(getStep() + Math.max(random.nextInt(FOOD_VALUE), 1));
+            }
+        }
+        else if(FOOD_VALUE > 0) {
+            scheduleDeath(getStep() + FOOD_VALUE);
+        }
+    }
+
+    public void act(List<Animal> newAnimals)
+    {
+        step(newAnimals, PREY, FOOD_VALUE);
+    }
+
+    protected Animal newborn(Location location)
+    {
+        return new SpeciesKernel(false, getField(), location, getLifecycle());
+    }
+
+    protected int getBreedingAge()
+    {
+        return BREEDING_AGE;
+    }
+
+    protected int getMaxAge()
+    {
+        return MAX_AGE;
+    }
+
+    protected double getBreedingProbability()
+    {
+        return BREEDING_PROBABILITY;
+    }
+
+    protected int getMaxLitterSize()
+    {
+        return MAX_LITTER_SIZE;
+    }
+
+    /**
+     * @return La description de l'espèce, passée à la définition de la
+     * classe cachée.
+     */
+    private static SpeciesSpec spec()
+    {
+        try {
+            SpeciesSpec spec = MethodHandles.classData(MethodHandles.lookup(), "_", SpeciesSpec.class);
+            if(spec == null) {
+                throw new IllegalStateException("SpeciesKernel s'utilise par SpeciesCompiler.compile");
+            }
+            return spec;
+        }
+        catch(IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+}
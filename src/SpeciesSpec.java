@@ -0,0 +1,186 @@
+import java.util.Properties;
+
+/**
+ * La description déclarative d'une espèce : ses règles de reproduction,
+ * de vieillissement, de chasse et de faim, sans code. Une description
+ * est compilée en une classe d'animaux par SpeciesCompiler.
+ *
+ * Un animal décrit ainsi agit comme un renard ou un lapin : il donne
+ * naissance dans les positions adjacentes libres, mange la première
+ * proie adjacente vivante s'il chasse, sinon se déplace, et meurt de
+ * surpopulation s'il ne peut pas bouger. Il meurt de vieillesse et,
+ * s'il a une valeur nutritive, de faim.
+ *
+ * @author Filipe Dias Morais
+ * @version 2026.10.19
+ */
+public final class SpeciesSpec
+{
+    private final String name;
+    private final int breedingAge;
+    private final int maxAge;
+    private final double breedingProbability;
+    private final int maxLitterSize;
+    private final Class prey;
+    private final int foodValue;
+
+    /**
+     * Décrit une espèce.
+     * @param name Le nom de l'espèce, un identifiant Java (par exemple "Wolf").
+     * @param breedingAge L'âge à partir duquel un animal peut se reproduire.
+     * @param maxAge L'âge maximal d'un animal, supérieur à zéro.
+     * @param breedingProbability La probabilité de reproduction à chaque pas.
+     * @param maxLitterSize La taille maximale d'une portée, supérieure à zéro.
+     * @param prey La classe des proies, null si l'espèce ne chasse pas.
+     * @param foodValue Le nombre de pas qu'un animal peut faire après
+     *                  un repas, 0 s'il ne meurt pas de faim.
+     * @throws IllegalArgumentException Si la description n'est pas valable.
+     */
+    public SpeciesSpec(String name, int breedingAge, int maxAge, double breedingProbability,
+                       int maxLitterSize, Class prey, int foodValue)
+    {
+        if(name == null || !isIdentifier(name)) {
+            throw new IllegalArgumentException("Nom d'espèce invalide : " + name);
+        }
+        if(breedingAge < 0 || maxAge <= 0 || maxLitterSize <= 0 || foodValue < 0) {
+            throw new IllegalArgumentException("Âges, portée et valeur nutritive doivent être positifs : " + name);
+        }
+        if(!(breedingProbability >= 0 && breedingProbability <= 1)) {
+            throw new IllegalArgumentException("Probabilité de reproduction hors de [0, 1] : " + breedingProbability);
+        }
+        if(prey != null && !Animal.class.isAssignableFrom(prey)) {
+            throw new IllegalArgumentException("La proie n'est pas un animal : " + prey.getName());
+        }
+        if(foodValue > 0 && prey == null) {
+            throw new IllegalArgumentException("Une espèce qui meurt de faim doit avoir une proie : " + name);
+        }
+        this.name = name;
+        this.breedingAge = breedingAge;
+        this.maxAge = maxAge;
+        this.breedingProbability = breedingProbability;
+        this.maxLitterSize = maxLitterSize;
+        this.prey = prey;
+        this.foodValue = foodValue;
+    }
+
+    /**
+     * Lit une description, par exemple depuis un fichier :
+     * name, breedingAge, maxAge, breedingProbability, maxLitterSize,
+     * prey (nom de classe, facultatif) et foodValue (facultatif, 0 par défaut).
+     * La proie doit être une classe ordinaire, comme Rabbit : une espèce
+     * compilée n'a pas de nom de classe et se passe au constructeur.
+     * @param properties Les propriétés de l'espèce.
+     * @return La description.
+     * @throws IllegalArgumentException Si une propriété manque ou n'est pas valable.
+     */
+    public static SpeciesSpec fromProperties(Properties properties)
+    {
+        String preyName = properties.getProperty("prey");
+        Class prey = null;
+        if(preyName != null && !preyName.isEmpty()) {
+            try {
+                prey = Class.forName(preyName);
+            }
+            catch(ClassNotFoundException e) {
+                throw new IllegalArgumentException("Proie inconnue : " + preyName, e);
+            }
+        }
+        try {
+            return new SpeciesSpec(required(properties, "name"),
+                                   Integer.parseInt(required(properties, "breedingAge")),
+                                   Integer.parseInt(required(properties, "maxAge")),
+                                   Double.parseDouble(required(properties, "breedingProbability")),
+                                   Integer.parseInt(required(properties, "maxLitterSize")),
+                                   prey,
+                                   Integer.parseInt(properties.getProperty("foodValue", "0")));
+        }
+        catch(NumberFormatException e) {
+            throw new IllegalArgumentException("Nombre invalide dans la description de l'espèce", e);
+        }
+    }
+
+    /**
+     * @return Le nom de l'espèce.
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * @return L'âge à partir duquel un animal peut se reproduire.
+     */
+    public int getBreedingAge()
+    {
+        return breedingAge;
+    }
+
+    /**
+     * @return L'âge maximal d'un animal.
+     */
+    public int getMaxAge()
+    {
+        return maxAge;
+    }
+
+    /**
+     * @return La probabilité de reproduction à chaque pas.
+     */
+    public double getBreedingProbability()
+    {
+        return breedingProbability;
+    }
+
+    /**
+     * @return La taille maximale d'une portée.
+     */
+    public int getMaxLitterSize()
+    {
+        return maxLitterSize;
+    }
+
+    /**
+     * @return La classe des proies, null si l'espèce ne chasse pas.
+     */
+    public Class getPrey()
+    {
+        return prey;
+    }
+
+    /**
+     * @return Le nombre de pas possibles après un repas, 0 si l'espèce ne meurt pas de faim.
+     */
+    public int getFoodValue()
+    {
+        return foodValue;
+    }
+
+    public String toString()
+    {
+        return name + "[breedingAge=" + breedingAge + ", maxAge=" + maxAge
+            + ", breedingProbability=" + breedingProbability + ", maxLitterSize=" + maxLitterSize
+            + ", prey=" + (prey == null ? "-" : Species.nameOf(prey)) + ", foodValue=" + foodValue + "]";
+    }
+
+    private static String required(Properties properties, String key)
+    {
+        String value = properties.getProperty(key);
+        if(value == null) {
+            throw new IllegalArgumentException("Propriété manquante : " + key);
+        }
+        return value.trim();
+    }
+
+    private static boolean isIdentifier(String name)
+    {
+        if(name.isEmpty() || !Character.isJavaIdentifierStart(name.charAt(0))) {
+            return false;
+        }
+        for(int i = 1; i < name.length(); i++) {
+            if(!Character.isJavaIdentifierPart(name.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,310 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Une roue temporelle hiérarchique : des éléments sont programmés pour
+ * un pas donné et rendus, par lots, lorsque l'horloge atteint ce pas.
+ * Trois niveaux de 64 cases couvrent 64, 4096 et 262144 pas ; les
+ * échéances plus lointaines attendent dans une liste de débordement.
+ * Programmer, annuler et faire avancer l'horloge coûtent O(1) par élément.
+ *
+ * Les entrées sont rangées dans des tableaux communs à toutes les cases
+ * et chaînées par case ; le numéro d'une entrée ne change pas quand
+ * elle descend d'un niveau, si bien qu'elle peut être annulée jusqu'à
+ * son échéance. Une entrée annulée ne retient plus son élément ; sa
+ * place est reprise quand sa case est vidée.
+ *
+ * Une copie de la roue partage ses tableaux avec l'original jusqu'à la
+ * première modification de l'une ou de l'autre.
+ *
+ * @author Filipe Dias Morais
+ * @version 2026.10.19
+ */
+public class TimingWheel<E>
+{
+    // Nombre de bits d'index par niveau.
+    private static final int BITS = 6;
+    // Nombre de cases par niveau.
+    private static final int SLOTS = 1 << BITS;
+    // Masque d'index d'une case.
+    private static final int MASK = SLOTS - 1;
+    // Nombre de niveaux.
+    private static final int LEVELS = 3;
+    // Le numéro de la case de débordement, après celles des niveaux.
+    private static final int OVERFLOW = LEVELS * SLOTS;
+    // Fin d'une chaîne d'entrées.
+    private static final int NONE = -1;
+    // Le nombre d'entrées allouées au départ.
+    private static final int INITIAL_ENTRIES = 64;
+
+    // La première et la dernière entrée de chaque case, NONE si elle est vide.
+    private int[] heads, tails;
+    // L'élément de chaque entrée (null si elle est annulée ou libre), son
+    // échéance et l'entrée suivante de la même case ou de la liste libre.
+    private Object[] items;
+    private int[] deadlines;
+    private int[] next;
+    // Le nombre d'entrées déjà utilisées au moins une fois.
+    private int used;
+    // La première entrée libre, NONE s'il n'y en a pas.
+    private int free;
+    // Le pas courant de l'horloge.
+    private int now;
+    // Indique que les tableaux sont partagés avec une copie de la roue.
+    private boolean shared;
+
+    /**
+     * Crée une roue vide, au pas 0.
+     */
+    public TimingWheel()
+    {
+        clear(0);
+    }
+
+    /**
+     * Crée une copie d'une roue, en temps constant : mêmes échéances,
+     * mêmes numéros d'entrées, au même pas. Les deux roues partagent
+     * leurs tableaux jusqu'à leur première modification ; les éléments
+     * eux-mêmes ne sont pas copiés.
+     * @param other La roue à copier.
+     */
+    public TimingWheel(TimingWheel<E> other)
+    {
+        heads = other.heads;
+        tails = other.tails;
+        items = other.items;
+        deadlines = other.deadlines;
+        next = other.next;
+        used = other.used;
+        free = other.free;
+        now = other.now;
+        shared = true;
+        other.shared = true;
+    }
+
+    /**
+     * @return Le pas courant de l'horloge.
+     */
+    public int getTime()
+    {
+        return now;
+    }
+
+    /**
+     * Programme un élément. Une échéance déjà passée est ramenée au pas suivant.
+     * @param item L'élément à programmer.
+     * @param deadline Le pas auquel l'élément doit être rendu.
+     * @return Le numéro de l'entrée, pour l'annuler (voir cancel).
+     */
+    public int schedule(E item, int deadline)
+    {
+        if(deadline <= now) {
+            deadline = now + 1;
+        }
+        own();
+        int entry = allocate();
+        items[entry] = item;
+        deadlines[entry] = deadline;
+        append(bucketFor(deadline), entry);
+        return entry;
+    }
+
+    /**
+     * Annule une entrée qui n'est pas encore échue : son élément ne sera
+     * pas rendu et n'est plus retenu par la roue.
+     * @param entry Le numéro de l'entrée, rendu par schedule.
+     * @param item L'élément programmé par cette entrée.
+     * @return false si l'entrée ne programmait plus cet élément.
+     */
+    public boolean cancel(int entry, E item)
+    {
+        if(entry < 0 || entry >= used || items[entry] != item) {
+            return false;
+        }
+        own();
+        items[entry] = null;
+        return true;
+    }
+
+    /**
+     * Remplace l'élément d'une entrée qui n'est pas encore échue, sans
+     * changer son échéance.
+     * @param entry Le numéro de l'entrée, rendu par schedule.
+     * @param item L'élément programmé par cette entrée.
+     * @param replacement Le nouvel élément.
+     * @return false si l'entrée ne programmait plus cet élément.
+     */
+    public boolean replace(int entry, E item, E replacement)
+    {
+        if(entry < 0 || entry >= used || items[entry] != item) {
+            return false;
+        }
+        own();
+        items[entry] = replacement;
+        return true;
+    }
+
+    /**
+     * Avance l'horloge d'un pas et rend les éléments arrivés à échéance.
+     * @param expired La liste à laquelle ajouter les éléments échus.
+     */
+    @SuppressWarnings("unchecked")
+    public void advance(List<E> expired)
+    {
+        own();
+        now++;
+        if((now & MASK) == 0) {
+            // Début d'un nouveau tour : redescendre les échéances des niveaux supérieurs.
+            if((now & ((1 << 2 * BITS) - 1)) == 0) {
+                if((now & ((1 << 3 * BITS) - 1)) == 0) {
+                    cascade(OVERFLOW);
+                }
+                cascade(2 * SLOTS + ((now >>> 2 * BITS) & MASK));
+            }
+            cascade(SLOTS + ((now >>> BITS) & MASK));
+        }
+        int entry = detach(now & MASK);
+        while(entry != NONE) {
+            int following = next[entry];
+            if(items[entry] != null) {
+                expired.add((E) items[entry]);
+            }
+            release(entry);
+            entry = following;
+        }
+    }
+
+    /**
+     * Vide la roue et ramène l'horloge au pas 0.
+     */
+    public void clear()
+    {
+        clear(0);
+    }
+
+    /**
+     * Vide la roue et place l'horloge à un pas donné. Les entrées sont
+     * abandonnées d'un bloc, sans parcourir les éléments programmés.
+     * @param time Le nouveau pas courant.
+     */
+    public void clear(int time)
+    {
+        heads = new int[OVERFLOW + 1];
+        tails = new int[OVERFLOW + 1];
+        Arrays.fill(heads, NONE);
+        Arrays.fill(tails, NONE);
+        shared = false;
+        items = new Object[INITIAL_ENTRIES];
+        deadlines = new int[INITIAL_ENTRIES];
+        next = new int[INITIAL_ENTRIES];
+        used = 0;
+        free = NONE;
+        now = time;
+    }
+
+    /**
+     * Copie les tableaux partagés avec une autre roue avant de les
+     * modifier, en ne gardant que les entrées déjà utilisées.
+     */
+    private void own()
+    {
+        if(shared) {
+            int capacity = Math.max(used, INITIAL_ENTRIES);
+            heads = heads.clone();
+            tails = tails.clone();
+            items = Arrays.copyOf(items, capacity);
+            deadlines = Arrays.copyOf(deadlines, capacity);
+            next = Arrays.copyOf(next, capacity);
+            shared = false;
+        }
+    }
+
+    /**
+     * Choisit la case d'une échéance selon le premier niveau dont le
+     * tour courant la contient.
+     */
+    private int bucketFor(int deadline)
+    {
+        for(int level = 0; level < LEVELS; level++) {
+            int shift = (level + 1) * BITS;
+            if((deadline >>> shift) == (now >>> shift)) {
+                return level * SLOTS + ((deadline >>> level * BITS) & MASK);
+            }
+        }
+        return OVERFLOW;
+    }
+
+    /**
+     * Redistribue le contenu d'une case dans les niveaux inférieurs, en
+     * rendant la place des entrées annulées.
+     */
+    private void cascade(int bucket)
+    {
+        int entry = detach(bucket);
+        while(entry != NONE) {
+            int following = next[entry];
+            if(items[entry] == null) {
+                release(entry);
+            }
+            else {
+                append(bucketFor(deadlines[entry]), entry);
+            }
+            entry = following;
+        }
+    }
+
+    /**
+     * Retire toutes les entrées d'une case.
+     * @return La première entrée de la chaîne retirée.
+     */
+    private int detach(int bucket)
+    {
+        int head = heads[bucket];
+        heads[bucket] = NONE;
+        tails[bucket] = NONE;
+        return head;
+    }
+
+    /**
+     * Ajoute une entrée à la fin d'une case, dans l'ordre de programmation.
+     */
+    private void append(int bucket, int entry)
+    {
+        next[entry] = NONE;
+        if(tails[bucket] == NONE) {
+            heads[bucket] = entry;
+        }
+        else {
+            next[tails[bucket]] = entry;
+        }
+        tails[bucket] = entry;
+    }
+
+    /**
+     * @return Une entrée libre, en agrandissant les tableaux au besoin.
+     */
+    private int allocate()
+    {
+        if(free != NONE) {
+            int entry = free;
+            free = next[entry];
+            return entry;
+        }
+        if(used == items.length) {
+            items = Arrays.copyOf(items, used * 2);
+            deadlines = Arrays.copyOf(deadlines, used * 2);
+            next = Arrays.copyOf(next, used * 2);
+        }
+        return used++;
+    }
+
+    /**
+     * Rend une entrée à la liste libre.
+     */
+    private void release(int entry)
+    {
+        items[entry] = null;
+        next[entry] = free;
+        free = entry;
+    }
+}